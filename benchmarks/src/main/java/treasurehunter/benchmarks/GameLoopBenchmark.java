@@ -0,0 +1,45 @@
+package treasurehunter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treasurehunter.SimulationRunner;
+import treasurehunter.TreasureHunter;
+
+/**
+ * Complete headless games played by the simulated player, one seed after another.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLoopBenchmark {
+    @Param({"e", "n", "h", "s"})
+    public String mode;
+
+    private SimulationRunner runner;
+    private long game;
+
+    @Setup
+    public void setUp() {
+        runner = new SimulationRunner(mode, 200, 1, 42);
+        game = 0;
+    }
+
+    @Benchmark
+    public int playOne() {
+        TreasureHunter played = runner.playOne(SimulationRunner.seedForGame(42, game++));
+        return played.getTurns();
+    }
+}
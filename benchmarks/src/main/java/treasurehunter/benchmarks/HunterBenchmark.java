@@ -0,0 +1,70 @@
+package treasurehunter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treasurehunter.Hunter;
+import treasurehunter.Item;
+
+/**
+ * Kit lookups, purchases and the status line of a Hunter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HunterBenchmark {
+    private Hunter hunter;
+    private String present;
+    private String missing;
+
+    @Setup
+    public void setUp() {
+        hunter = new Hunter("bench", 100);
+        hunter.addItem("water");
+        hunter.addItem("rope");
+        hunter.addItem("shovel");
+        hunter.addTreasure("a gem");
+        // copies, so the lookups cannot short-circuit on reference equality
+        present = new String("shovel");
+        missing = new String("boat");
+    }
+
+    @Benchmark
+    public boolean hasItemInKitPresent() {
+        return hunter.hasItemInKit(present);
+    }
+
+    @Benchmark
+    public boolean hasItemInKitMissing() {
+        return hunter.hasItemInKit(missing);
+    }
+
+    @Benchmark
+    public boolean hasItem() {
+        return hunter.hasItem(Item.SHOVEL);
+    }
+
+    @Benchmark
+    public boolean buyItem() {
+        hunter.gold = 100;
+        boolean bought = hunter.buyItem(missing, 20);
+        hunter.removeItemFromKit(missing);
+        return bought;
+    }
+
+    @Benchmark
+    public String infoString() {
+        return hunter.infoString();
+    }
+}
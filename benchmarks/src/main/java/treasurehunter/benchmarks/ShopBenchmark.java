@@ -0,0 +1,50 @@
+package treasurehunter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treasurehunter.NullOutputSink;
+import treasurehunter.Shop;
+
+/**
+ * Price checks and the rendered price list of a Shop.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+    private Shop shop;
+    private String item;
+
+    @Setup
+    public void setUp() {
+        shop = new Shop(0.5, true, () -> "x", NullOutputSink.INSTANCE);
+        item = new String("boots");
+    }
+
+    @Benchmark
+    public int checkMarketPriceBuying() {
+        return shop.checkMarketPrice(item, true);
+    }
+
+    @Benchmark
+    public int checkMarketPriceSelling() {
+        return shop.checkMarketPrice(item, false);
+    }
+
+    @Benchmark
+    public String inventory() {
+        return shop.inventory();
+    }
+}
@@ -0,0 +1,50 @@
+package treasurehunter.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treasurehunter.GameSnapshot;
+import treasurehunter.NullOutputSink;
+import treasurehunter.SimulationRunner;
+import treasurehunter.TreasureHunter;
+
+/**
+ * Encoding and decoding a GameSnapshot of a finished game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    private TreasureHunter game;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        game = new SimulationRunner("n", 50, 1, 42).playOne(42);
+        buffer = ByteBuffer.allocateDirect(GameSnapshot.SIZE);
+        GameSnapshot.encode(game, 42, buffer, 0);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        GameSnapshot.encode(game, 42, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public TreasureHunter decode() {
+        return GameSnapshot.decode(buffer, 0, () -> "x", NullOutputSink.INSTANCE);
+    }
+}
@@ -0,0 +1,79 @@
+package treasurehunter.benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import treasurehunter.Hunter;
+import treasurehunter.Item;
+import treasurehunter.NullOutputSink;
+import treasurehunter.Shop;
+import treasurehunter.Terrain;
+import treasurehunter.Town;
+
+/**
+ * Building towns (which picks their terrain and treasure) and the chance events inside them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TownBenchmark {
+    private SplittableRandom random;
+    private Shop shop;
+    private Hunter hunter;
+    private Town town;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        shop = new Shop(0.5, false, () -> "x", NullOutputSink.INSTANCE);
+        hunter = new Hunter("bench", 50);
+        hunter.addItem(Item.SHOVEL);
+        town = newTown();
+    }
+
+    @Benchmark
+    public Town construct() {
+        return newTown();
+    }
+
+    @Benchmark
+    public Terrain newTerrain() {
+        return newTown().getTerrain();
+    }
+
+    @Benchmark
+    public int lookForTrouble() {
+        hunter.gold = 50;
+        town.lookForTrouble();
+        return hunter.gold;
+    }
+
+    /**
+     * A town can only be dug once, so each dig gets a fresh town; subtract construct() for the dig alone.
+     */
+    @Benchmark
+    public int digFreshTown() {
+        Town fresh = newTown();
+        fresh.hunterArrives(hunter);
+        fresh.dig();
+        return hunter.gold;
+    }
+
+    private Town newTown() {
+        Town newTown = new Town(shop, 0.4, false, NullOutputSink.INSTANCE, random);
+        newTown.hunterArrives(hunter);
+        return newTown;
+    }
+}
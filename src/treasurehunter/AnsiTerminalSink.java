@@ -0,0 +1,171 @@
+package treasurehunter;
+
+import java.awt.Color;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An OutputSink that writes to a terminal, turning colors into the ANSI escape codes from Colors.<p>
+ * Text is encoded as UTF-8 straight into one reusable buffer that is written to a byte channel when it fills up,
+ * so printing allocates nothing. The color code is only sent when the color changes. Escape codes inside the text,
+ * such as a terrain name ending in Colors.RESET, are passed through, and after such text the color is no longer
+ * known, so the next print sends its code again.
+ */
+
+public class AnsiTerminalSink implements OutputSink {
+    // constants
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] RESET = ascii(Colors.RESET);
+    private static final byte[] CLEAR_SCREEN = ascii("\033[H\033[2J");
+
+    // instance variables
+    private WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private boolean autoFlush;
+    private byte[] currentCode;   // null when text with its own escape codes may have changed the color
+
+    /**
+     * Creates a sink that writes to standard output and flushes after every print, for interactive play.
+     */
+    public AnsiTerminalSink() {
+        this(new FileOutputStream(FileDescriptor.out).getChannel(), true);
+    }
+
+    /**
+     * @param channel Where the encoded text is written.
+     * @param autoFlush Whether to write the buffer out after every print instead of only when it fills up.
+     */
+    public AnsiTerminalSink(WritableByteChannel channel, boolean autoFlush) {
+        this(channel, autoFlush, BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel Where the encoded text is written.
+     * @param autoFlush Whether to write the buffer out after every print instead of only when it fills up.
+     * @param bufferSize The size of the buffer in bytes; many small sinks, e.g. one per server session, can use less.
+     */
+    public AnsiTerminalSink(WritableByteChannel channel, boolean autoFlush, int bufferSize) {
+        this.channel = channel;
+        this.autoFlush = autoFlush;
+        buffer = ByteBuffer.allocate(bufferSize);
+        currentCode = RESET;
+    }
+
+    public void print(String text, Color color) {
+        byte[] code = codeFor(color);
+        if (code != currentCode) {
+            put(code);
+            currentCode = code;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '\033') {
+                    currentCode = null;
+                }
+                putByte(c);
+            } else if (c < 0x800) {
+                putByte(0xc0 | (c >> 6));
+                putByte(0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                putByte(0xf0 | (cp >> 18));
+                putByte(0x80 | ((cp >> 12) & 0x3f));
+                putByte(0x80 | ((cp >> 6) & 0x3f));
+                putByte(0x80 | (cp & 0x3f));
+            } else {
+                putByte(0xe0 | (c >> 12));
+                putByte(0x80 | ((c >> 6) & 0x3f));
+                putByte(0x80 | (c & 0x3f));
+            }
+        }
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    public void clear() {
+        put(CLEAR_SCREEN);
+        if (autoFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out everything still in the buffer.
+     */
+    public void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void put(byte[] bytes) {
+        for (byte b : bytes) {
+            putByte(b);
+        }
+    }
+
+    private void putByte(int b) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    /**
+     * Picks the escape code for a color. Black is shown in the terminal's own text color,
+     * since black on a dark terminal would be unreadable.
+     */
+    private static byte[] codeFor(Color color) {
+        if (Color.RED.equals(color)) {
+            return AnsiCodes.RED;
+        } else if (Color.GREEN.equals(color)) {
+            return AnsiCodes.GREEN;
+        } else if (Color.YELLOW.equals(color)) {
+            return AnsiCodes.YELLOW;
+        } else if (Color.BLUE.equals(color)) {
+            return AnsiCodes.BLUE;
+        } else if (Color.MAGENTA.equals(color)) {
+            return AnsiCodes.PURPLE;
+        } else if (Color.CYAN.equals(color)) {
+            return AnsiCodes.CYAN;
+        } else if (Color.WHITE.equals(color)) {
+            return AnsiCodes.WHITE;
+        }
+        return RESET;
+    }
+
+    private static byte[] ascii(String code) {
+        byte[] bytes = new byte[code.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) code.charAt(i);
+        }
+        return bytes;
+    }
+
+    /**
+     * The escape codes from Colors, encoded once.
+     */
+    private static final class AnsiCodes {
+        private static final byte[] RED = ascii(Colors.RED);
+        private static final byte[] GREEN = ascii(Colors.GREEN);
+        private static final byte[] YELLOW = ascii(Colors.YELLOW);
+        private static final byte[] BLUE = ascii(Colors.BLUE);
+        private static final byte[] PURPLE = ascii(Colors.PURPLE);
+        private static final byte[] CYAN = ascii(Colors.CYAN);
+        private static final byte[] WHITE = ascii(Colors.WHITE);
+    }
+}
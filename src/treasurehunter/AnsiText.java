@@ -0,0 +1,166 @@
+package treasurehunter;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A piece of text with ANSI SGR escape sequences, such as the codes in Colors, split into runs of one color each.<p>
+ * The text is parsed in a single pass: each run is the text between two escape sequences, and each SGR sequence
+ * sets the color of the runs after it. A reset, or code 39, goes back to the color the text was printed in,
+ * which a run records as a null color. Escape sequences other than SGR are dropped, and SGR codes other than
+ * colors are ignored, including 256-color and RGB codes such as 38;5;n along with their operands. Neighbouring runs of the same color are joined. Colors stay in effect until the end of the
+ * text only, so every printed piece of text starts in the color it was printed in.
+ */
+
+public class AnsiText {
+    // constants
+    private static final char ESCAPE = '\033';
+    // the xterm palette for codes 30-37, then the bright colors for codes 90-97
+    private static final Color[] PALETTE = {
+            new Color(0, 0, 0), new Color(205, 0, 0), new Color(0, 205, 0), new Color(205, 205, 0),
+            new Color(0, 0, 238), new Color(205, 0, 205), new Color(0, 205, 205), new Color(229, 229, 229),
+            new Color(127, 127, 127), new Color(255, 0, 0), new Color(0, 255, 0), new Color(255, 255, 0),
+            new Color(92, 92, 255), new Color(255, 0, 255), new Color(0, 255, 255), new Color(255, 255, 255)
+    };
+
+    // instance variables
+    private String[] texts;
+    private Color[] colors;
+    private int runs;
+
+    private AnsiText() {
+        texts = new String[2];
+        colors = new Color[2];
+        runs = 0;
+    }
+
+    /**
+     * @param text The text to parse.
+     * @return The text's runs.
+     */
+    public static AnsiText parse(String text) {
+        AnsiText parsed = new AnsiText();
+        Color color = null;
+        int start = 0;
+        int escape = text.indexOf(ESCAPE);
+        while (escape >= 0) {
+            parsed.add(text, start, escape, color);
+            int end = escape + 1;
+            if (end < text.length() && text.charAt(end) == '[') {
+                // parameters and intermediates run up to a final byte between '@' and '~'
+                end++;
+                int parameters = end;
+                while (end < text.length() && (text.charAt(end) < '@' || text.charAt(end) > '~')) {
+                    end++;
+                }
+                if (end < text.length() && text.charAt(end) == 'm') {
+                    color = applyAll(text, parameters, end, color);
+                }
+                end++;
+            } else if (end < text.length()) {
+                // a two-character escape sequence
+                end++;
+            }
+            start = Math.min(end, text.length());
+            escape = text.indexOf(ESCAPE, start);
+        }
+        parsed.add(text, start, text.length(), color);
+        return parsed;
+    }
+
+    /**
+     * @return The number of runs.
+     */
+    public int runCount() {
+        return runs;
+    }
+
+    /**
+     * @param run The index of the run.
+     * @return The run's text, without escape sequences.
+     */
+    public String getText(int run) {
+        return texts[run];
+    }
+
+    /**
+     * @param run The index of the run.
+     * @param printColor The color the whole text was printed in.
+     * @return The color the run is shown in.
+     */
+    public Color getColor(int run, Color printColor) {
+        return colors[run] == null ? printColor : colors[run];
+    }
+
+    /**
+     * Applies the parameters of one SGR sequence in order.
+     *
+     * @param start The index of the first parameter character.
+     * @param end The index of the final 'm'.
+     * @return The color the sequence leaves in effect, given the color before it.
+     */
+    private static Color applyAll(String text, int start, int end, Color color) {
+        int code = 0;
+        boolean subParameters = false;
+        boolean extended = false;
+        int operands = 0;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? text.charAt(i) : ';';
+            if (c >= '0' && c <= '9') {
+                code = Math.min(code * 10 + (c - '0'), 1000);
+            } else if (c == ':') {
+                // e.g. 38:5:31, a whole extended color in one parameter
+                subParameters = true;
+            } else if (c == ';') {
+                if (operands > 0) {
+                    operands--;
+                } else if (extended) {
+                    // 5 takes a palette index, 2 takes red, green and blue
+                    extended = false;
+                    operands = code == 5 ? 1 : code == 2 ? 3 : 0;
+                } else if (!subParameters && (code == 38 || code == 48 || code == 58)) {
+                    extended = true;
+                } else if (!subParameters) {
+                    color = apply(code, color);
+                }
+                code = 0;
+                subParameters = false;
+            }
+        }
+        return color;
+    }
+
+    /**
+     * @return The color an SGR code sets, given the color before it.
+     */
+    private static Color apply(int code, Color color) {
+        if (code == 0 || code == 39) {
+            return null;
+        }
+        if (code >= 30 && code <= 37) {
+            return PALETTE[code - 30];
+        }
+        if (code >= 90 && code <= 97) {
+            return PALETTE[code - 90 + 8];
+        }
+        return color;
+    }
+
+    private void add(String text, int start, int end, Color color) {
+        if (start >= end) {
+            return;
+        }
+        String run = text.substring(start, end);
+        if (runs > 0 && colors[runs - 1] == color) {
+            texts[runs - 1] += run;
+            return;
+        }
+        if (runs == texts.length) {
+            texts = Arrays.copyOf(texts, runs * 2);
+            colors = Arrays.copyOf(colors, runs * 2);
+        }
+        texts[runs] = run;
+        colors[runs] = color;
+        runs++;
+    }
+}
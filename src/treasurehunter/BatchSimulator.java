@@ -0,0 +1,455 @@
+package treasurehunter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Plays the same games as SimulationRunner, with the same RandomPlayer moves, but keeps a whole batch of games in
+ * parallel primitive arrays instead of a TreasureHunter, Hunter, Town and Shop per game.<p>
+ * A batch holds each game's gold, kit and treasure bitmasks, town state packed into one byte, counters, and the
+ * states of its two random number generators. Every pass of step() plays one menu turn of every game still running,
+ * in one loop over the arrays. Finished games are swapped out of the list of running games, so the loop never
+ * visits them again. Nothing is allocated while a batch plays.<p>
+ * The generators are SplittableRandom's published algorithm worked on the arrays: the game's generator and the
+ * player's, which is split off the game's as in SimulationRunner.playOne(). Each draw happens at the same point
+ * and in the same order as the Town, Hunter and Shop rules make it, so every game ends exactly as the object-based
+ * game with the same seed does. check() plays both and compares them game by game.<p>
+ * Usage: BatchSimulator [games] [mode] [maxTurns] [threads] [seed] [--check]
+ */
+
+public class BatchSimulator {
+    // constants
+    public static final int BATCH_SIZE = 4096;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    // RandomPlayer's moves, in its order, and the items it names, which are the first seven items in Item order
+    private static final byte[] MOVES = {'b', 's', 'e', 'm', 'm', 'l', 'd', 'h', 'h'};
+    private static final int PLAYER_ITEMS = 7;
+    private static final int SWORD = Item.SWORD.mask();
+    private static final int SHOVEL = Item.SHOVEL.mask();
+    private static final int DUST = Treasure.DUST.ordinal();
+    // the town byte: needed item ordinal in the low three bits, then the flags, then the treasure ordinal
+    private static final int ITEM_BITS = 7;
+    private static final int TOUGH = 8;
+    private static final int DUG = 16;
+    private static final int HUNTED = 32;
+    private static final int TREASURE_SHIFT = 6;
+    private static final byte PLAYING = 0;
+    private static final byte WON = 1;
+    private static final byte LOST = 2;
+    private static final byte QUIT = 3;
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private int threads;
+    private long seed;
+    private boolean easy;
+    private double toughness;
+    private int startingGold;
+    private int startingKit;
+    private int[] buyPrice;
+    private int[] sellPrice;
+
+    /**
+     * @param mode The difficulty every simulated player picks.
+     * @param maxTurns The number of menu choices after which a simulated player exits.
+     * @param threads The number of worker threads.
+     * @param seed The seed every game's random number source is derived from.
+     */
+    public BatchSimulator(String mode, int maxTurns, int threads, long seed) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.threads = threads;
+        this.seed = seed;
+        // as in TreasureHunter.welcomePlayer()
+        boolean hardMode = mode.equals("h");
+        easy = mode.equals("e");
+        startingGold = easy ? 40 : 20;
+        startingKit = 0;
+        if (mode.equals("test")) {
+            startingGold = 100;
+            startingKit = Item.ALL_ITEMS & ~SWORD;
+        }
+        toughness = TreasureHunter.toughness(hardMode, easy);
+        Shop shop = new Shop(TreasureHunter.markdown(hardMode, easy), mode.equals("s"), null, null);
+        buyPrice = new int[Item.values().length];
+        sellPrice = new int[Item.values().length];
+        for (Item item : Item.values()) {
+            buyPrice[item.ordinal()] = shop.checkMarketPrice(item, true);
+            sellPrice[item.ordinal()] = shop.checkMarketPrice(item, false);
+        }
+    }
+
+    /**
+     * Plays the given number of games, a batch at a time on each worker, and merges their results.
+     *
+     * @param games The number of games to play.
+     * @return The combined results, equal to what SimulationRunner.run() returns for the same settings.
+     */
+    public SimulationStats run(long games) {
+        long batches = (games + BATCH_SIZE - 1) / BATCH_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, batches)
+                    .parallel()
+                    .collect(SimulationStats::new,
+                            (stats, b) -> playBatch(b * BATCH_SIZE, games).recordAll(stats),
+                            SimulationStats::merge))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays the given number of games both here and with SimulationRunner.playOne(), and compares every game's
+     * outcome, turns, gold, kit, treasures, towns visited, brawls and broken items.
+     *
+     * @param games The number of games to compare.
+     * @return A description of the first game that differs, or null if all of them match.
+     */
+    public String check(long games) {
+        SimulationRunner runner = new SimulationRunner(mode, maxTurns, 1, seed);
+        for (long first = 0; first < games; first += BATCH_SIZE) {
+            Batch batch = playBatch(first, games);
+            for (int i = 0; i < batch.size; i++) {
+                TreasureHunter game = runner.playOne(SimulationRunner.seedForGame(seed, first + i));
+                String difference = batch.compare(i, game);
+                if (difference != null) {
+                    return "game " + (first + i) + ": " + difference;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Batch playBatch(long first, long games) {
+        Batch batch = new Batch((int) Math.min(BATCH_SIZE, games - first));
+        batch.start(first);
+        while (batch.running > 0) {
+            batch.step();
+        }
+        return batch;
+    }
+
+    /**
+     * Draws the seed of SplittableRandom's next value.
+     */
+    private static long nextSeed(long[] seeds, long[] gammas, int i) {
+        return seeds[i] += gammas == null ? GOLDEN_GAMMA : gammas[i];
+    }
+
+    /**
+     * The same value SplittableRandom.nextInt(bound) returns, drawn from the generator stored at index i.
+     * The game's generators all use the default gamma, so they pass null for gammas.
+     */
+    private static int nextInt(long[] seeds, long[] gammas, int i, int bound) {
+        int r = mix32(nextSeed(seeds, gammas, i));
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed(seeds, gammas, i)) >>> 1) {
+            // rejected: u fell in the incomplete last block of the int range
+        }
+        return r;
+    }
+
+    /**
+     * The same value SplittableRandom.nextDouble() returns, drawn from the generator stored at index i.
+     */
+    private static double nextDouble(long[] seeds, long[] gammas, int i) {
+        return (mix64(nextSeed(seeds, gammas, i)) >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    /**
+     * Up to BATCH_SIZE games, one slot of every array per game.
+     */
+    private final class Batch {
+        // instance variables
+        private final int size;
+        private final long[] gameSeed;
+        private final long[] playerSeed;
+        private final long[] playerGamma;
+        private final int[] gold;
+        private final byte[] kit;
+        private final byte[] treasures;
+        private final byte[] town;
+        private final byte[] status;
+        private final int[] turns;
+        private final int[] moves;
+        private final int[] towns;
+        private final int[] brawlsWon;
+        private final int[] brawlsLost;
+        private final int[] itemsBroken;
+        // the games still being played, in the first running slots
+        private final int[] playing;
+        private int running;
+
+        Batch(int size) {
+            this.size = size;
+            gameSeed = new long[size];
+            playerSeed = new long[size];
+            playerGamma = new long[size];
+            gold = new int[size];
+            kit = new byte[size];
+            treasures = new byte[size];
+            town = new byte[size];
+            status = new byte[size];
+            turns = new int[size];
+            moves = new int[size];
+            towns = new int[size];
+            brawlsWon = new int[size];
+            brawlsLost = new int[size];
+            itemsBroken = new int[size];
+            playing = new int[size];
+        }
+
+        /**
+         * Sets up every game as SimulationRunner.playOne() does: split off the player's generator, then enter
+         * the first town.
+         */
+        void start(long first) {
+            for (int i = 0; i < size; i++) {
+                gameSeed[i] = SimulationRunner.seedForGame(seed, first + i);
+                playerSeed[i] = mix64(nextSeed(gameSeed, null, i));
+                playerGamma[i] = mixGamma(nextSeed(gameSeed, null, i));
+                gold[i] = startingGold;
+                kit[i] = (byte) startingKit;
+                enterTown(i);
+                playing[i] = i;
+            }
+            running = size;
+        }
+
+        /**
+         * Plays one menu turn of every running game.
+         */
+        void step() {
+            int k = 0;
+            while (k < running) {
+                int i = playing[k];
+                if (moves[i] >= maxTurns) {
+                    // the player exits
+                    turns[i]++;
+                    status[i] = QUIT;
+                } else {
+                    moves[i]++;
+                    turns[i]++;
+                    int move = MOVES[nextInt(playerSeed, playerGamma, i, MOVES.length)];
+                    switch (move) {
+                        case 'b':
+                            buy(i, nextInt(playerSeed, playerGamma, i, PLAYER_ITEMS));
+                            break;
+                        case 's':
+                            sell(i, nextInt(playerSeed, playerGamma, i, PLAYER_ITEMS));
+                            break;
+                        case 'm':
+                            moveOn(i);
+                            break;
+                        case 'l':
+                            lookForTrouble(i);
+                            break;
+                        case 'd':
+                            dig(i);
+                            break;
+                        case 'h':
+                            hunt(i);
+                            break;
+                        default:
+                            // exploring changes nothing
+                            break;
+                    }
+                }
+                if (status[i] == PLAYING) {
+                    k++;
+                } else {
+                    running--;
+                    playing[k] = playing[running];
+                }
+            }
+        }
+
+        /**
+         * Shop.enter() for "b": the player always answers the price with "y", but the shop only asks when the item
+         * costs something and the hunter has no sword, and an unread "y" becomes the next, invalid, menu choice.
+         */
+        private void buy(int i, int item) {
+            int cost = buyPrice[item];
+            if (cost != 0 && (kit[i] & SWORD) != 0) {
+                cost = 0;
+                turns[i]++;
+            }
+            int bit = 1 << item;
+            if (gold[i] >= cost && (kit[i] & bit) == 0) {
+                gold[i] -= cost;
+                kit[i] |= (byte) bit;
+            }
+        }
+
+        /**
+         * Shop.enter() for "s": the shop does not ask about an item it pays nothing for.
+         */
+        private void sell(int i, int item) {
+            int price = sellPrice[item];
+            int bit = 1 << item;
+            if (price == 0) {
+                turns[i]++;
+            } else if ((kit[i] & bit) != 0) {
+                gold[i] += price;
+                kit[i] &= (byte) ~bit;
+            }
+        }
+
+        /**
+         * Town.leaveTown() then TreasureHunter.enterTown(). The break check draws even in easy mode.
+         */
+        private void moveOn(int i) {
+            int bit = 1 << (town[i] & ITEM_BITS);
+            if ((kit[i] & bit) == 0) {
+                return;
+            }
+            if (nextDouble(gameSeed, null, i) < 0.5 && !easy) {
+                kit[i] &= (byte) ~bit;
+                itemsBroken[i]++;
+            }
+            enterTown(i);
+        }
+
+        /**
+         * The draws of the Town constructor: terrain, treasure, then toughness.
+         */
+        private void enterTown(int i) {
+            int item = Terrain.fromDraw(nextDouble(gameSeed, null, i)).getNeededKitItem().ordinal();
+            // Town.randomTreasure() picks the treasures in Treasure order
+            int treasure = nextInt(gameSeed, null, i, 4);
+            int tough = nextDouble(gameSeed, null, i) < toughness ? TOUGH : 0;
+            town[i] = (byte) (item | tough | treasure << TREASURE_SHIFT);
+            towns[i]++;
+        }
+
+        /**
+         * Town.lookForTrouble().
+         */
+        private void lookForTrouble(int i) {
+            double noTroubleChance = (town[i] & TOUGH) != 0 ? 0.66 : 0.33;
+            if (nextDouble(gameSeed, null, i) > noTroubleChance) {
+                return;
+            }
+            int goldDiff = nextInt(gameSeed, null, i, 10) + 1;
+            if ((kit[i] & SWORD) != 0) {
+                gold[i] += goldDiff;
+            } else if (nextDouble(gameSeed, null, i) > noTroubleChance) {
+                brawlsWon[i]++;
+                gold[i] += goldDiff;
+            } else {
+                brawlsLost[i]++;
+                if (gold[i] < goldDiff) {
+                    status[i] = LOST;
+                }
+                gold[i] -= goldDiff;
+            }
+        }
+
+        /**
+         * Town.dig(), which forgets that the town was dug if the hunter tries again without a shovel.
+         */
+        private void dig(int i) {
+            if ((kit[i] & SHOVEL) == 0) {
+                town[i] &= ~DUG;
+                return;
+            }
+            if ((town[i] & DUG) != 0) {
+                return;
+            }
+            if ((nextDouble(gameSeed, null, i) * 100) > 50.0) {
+                gold[i] += nextInt(gameSeed, null, i, 20) + 1;
+            }
+            town[i] |= DUG;
+        }
+
+        /**
+         * TreasureHunter.huntForTreasure().
+         */
+        private void hunt(int i) {
+            if ((town[i] & HUNTED) != 0) {
+                return;
+            }
+            town[i] |= HUNTED;
+            int treasure = (town[i] & 0xff) >>> TREASURE_SHIFT;
+            if (treasure != DUST) {
+                treasures[i] |= (byte) (1 << treasure);
+                if (treasures[i] == Treasure.ALL_TREASURES) {
+                    status[i] = WON;
+                }
+            }
+        }
+
+        void recordAll(SimulationStats stats) {
+            for (int i = 0; i < size; i++) {
+                stats.record(status[i] == WON, status[i] == LOST, turns[i], gold[i], towns[i], brawlsWon[i],
+                        brawlsLost[i], itemsBroken[i]);
+            }
+        }
+
+        /**
+         * @return What differs between game i and the same game played by the object-based rules, or null.
+         */
+        String compare(int i, TreasureHunter game) {
+            Hunter hunter = game.getHunter();
+            String expected = hunter.win + " " + hunter.lose + " " + game.getTurns() + " " + hunter.gold + " "
+                    + hunter.getKitMask() + " " + hunter.getTreasureMask() + " " + game.getTownsVisited() + " "
+                    + hunter.getBrawlsWon() + " " + hunter.getBrawlsLost() + " " + hunter.getItemsBroken();
+            String actual = (status[i] == WON) + " " + (status[i] == LOST) + " " + turns[i] + " " + gold[i] + " "
+                    + (kit[i] & 0xff) + " " + treasures[i] + " " + towns[i] + " "
+                    + brawlsWon[i] + " " + brawlsLost[i] + " " + itemsBroken[i];
+            return expected.equals(actual) ? null
+                    : "expected win lose turns gold kit treasures towns won lost broken " + expected + ", got " + actual;
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String mode = args.length > 1 ? args[1] : "n";
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        boolean check = args.length > 5 && args[5].equals("--check");
+
+        BatchSimulator simulator = new BatchSimulator(mode, maxTurns, threads, seed);
+        System.out.println("seed: " + seed);
+        if (check) {
+            String difference = simulator.check(games);
+            System.out.println(difference == null ? games + " games match the object-based rules" : difference);
+            if (difference != null) {
+                System.exit(1);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        SimulationStats stats = simulator.run(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.print(stats.infoString());
+        System.out.printf("%.2f s on %d threads, %.0f games/minute%n", seconds, threads, games / seconds * 60);
+    }
+}
@@ -0,0 +1,17 @@
+package treasurehunter;
+
+/**
+ * A CommandSource supplies the lines of input that drive a game of Treasure Hunter.<p>
+ * The console, a script or a simulated player can all stand behind this interface,
+ * so the game logic never needs to know where its commands come from.
+ */
+
+public interface CommandSource {
+    /**
+     * Reads the next line of input.<p>
+     * Implementations return the exit command ("x") once they run out of input so that a game always ends.
+     *
+     * @return The next line of input, never null.
+     */
+    String nextLine();
+}
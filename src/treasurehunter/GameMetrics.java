@@ -0,0 +1,341 @@
+package treasurehunter;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Process-wide counters of what hunters do, and how long menu commands take, for every game in the JVM.<p>
+ * Each game counts into its own Tally of plain ints, which it adds to the process-wide LongAdders once every
+ * TIMING_SAMPLE turns and when it ends. Even an uncontended atomic on every event would slow a headless simulation
+ * by about a tenth, and LongAdders spread what atomics remain over per-thread cells, so games on many cores never
+ * fight over a shared cache line. Commands are timed on the same sample of turns, because reading the clock on
+ * every turn would cost more than the turn itself. Each game starts the sample at a random turn, so games shorter
+ * than TIMING_SAMPLE turns are timed too, and time spent waiting for the player's answers is left out.<p>
+ * Metrics are off unless the JVM is started with -Dtreasurehunter.metrics=true or they are switched on through
+ * JMX; while off, each instrumented path costs one read of a boolean.
+ * start() publishes the metrics as the MBean treasurehunter:type=GameMetrics and, with
+ * -Dtreasurehunter.metrics.interval=seconds, also prints a snapshot at that interval.
+ */
+
+public class GameMetrics implements DynamicMBean {
+    // constants
+    public static final String OBJECT_NAME = "treasurehunter:type=GameMetrics";
+    public static final int TIMING_SAMPLE = 64;
+    private static final String COMMANDS = "bselhdmx";
+    private static final Event[] EVENTS = Event.values();
+    private static final LongAdder[] COUNTERS = buildCounters();
+    private static final Timer[] TIMERS = buildTimers();
+    private static final GameMetrics INSTANCE = new GameMetrics();
+
+    // static variables
+    private static volatile boolean enabled = Boolean.getBoolean("treasurehunter.metrics");
+    private static ScheduledExecutorService dumper;
+
+    /**
+     * The things a hunter can do or have happen to them that are counted.
+     */
+    public enum Event {
+        COMMAND,
+        INVALID_COMMAND,
+        DIG,
+        DIG_GOLD,
+        DIG_DIRT,
+        TROUBLE_SOUGHT,
+        NO_TROUBLE,
+        SWORD_PAYOFF,
+        BRAWL_WON,
+        BRAWL_LOST,
+        TOWN_LEFT,
+        LEAVE_BLOCKED,
+        ITEM_BROKEN,
+        ITEM_BOUGHT,
+        BUY_REFUSED,
+        ITEM_SOLD,
+        SELL_REFUSED
+    }
+
+    private GameMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @param event The event.
+     * @return The number of times it was counted since the last reset.
+     */
+    public static long get(Event event) {
+        return COUNTERS[event.ordinal()].sum();
+    }
+
+    /**
+     * Decides whether a turn is one of the sampled turns whose command is timed and after which the game's
+     * tally is flushed.
+     *
+     * @param turn The game's turn number.
+     * @return true if metrics are on and the turn is sampled.
+     */
+    public static boolean isSampled(int turn) {
+        return enabled && (turn & (TIMING_SAMPLE - 1)) == 0;
+    }
+
+    /**
+     * Records how long a sampled menu command took.
+     *
+     * @param choice The command, as typed.
+     * @param nanos The time it took, in nanoseconds.
+     */
+    public static void recordCommand(String choice, long nanos) {
+        int index = choice.length() == 1 ? COMMANDS.indexOf(choice.charAt(0)) : -1;
+        Timer timer = TIMERS[index < 0 ? COMMANDS.length() : index];
+        timer.count.increment();
+        timer.totalNanos.add(nanos);
+        timer.maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Sets every counter and timer back to zero.
+     */
+    public static void reset() {
+        for (LongAdder counter : COUNTERS) {
+            counter.reset();
+        }
+        for (Timer timer : TIMERS) {
+            timer.count.reset();
+            timer.totalNanos.reset();
+            timer.maxNanos.reset();
+        }
+    }
+
+    /**
+     * @return Every counter and timer, one per line.
+     */
+    public static String snapshotString() {
+        StringBuilder str = new StringBuilder();
+        str.append("metrics ").append(enabled ? "on" : "off").append('\n');
+        for (Event event : EVENTS) {
+            str.append(String.format("  %-16s %d%n", event.name().toLowerCase(), get(event)));
+        }
+        for (int i = 0; i < TIMERS.length; i++) {
+            Timer timer = TIMERS[i];
+            str.append(String.format("  command %-8s %d sampled, mean %.2f us, max %.2f us%n", timerName(i),
+                    timer.count.sum(), timer.meanMicros(), timer.maxNanos.get() / 1e3));
+        }
+        return str.toString();
+    }
+
+    /**
+     * Registers the MBean and, when the system properties ask for it, starts printing snapshots.
+     * Calling it again does nothing.
+     *
+     * @param out Where snapshots are printed.
+     */
+    public static synchronized void start(PrintStream out) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+        long interval = Long.getLong("treasurehunter.metrics.interval", 0);
+        if (interval > 0 && dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(() -> out.print(snapshotString()), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (attribute.equals("Enabled")) {
+            return enabled;
+        }
+        for (Event event : EVENTS) {
+            if (attributeName(event).equals(attribute)) {
+                return get(event);
+            }
+        }
+        for (int i = 0; i < TIMERS.length; i++) {
+            if (attribute.equals("CommandMeanMicros_" + timerName(i))) {
+                return TIMERS[i].meanMicros();
+            }
+            if (attribute.equals("CommandMaxMicros_" + timerName(i))) {
+                return TIMERS[i].maxNanos.get() / 1e3;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+        if (!attribute.getName().equals("Enabled")) {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+        if (!(attribute.getValue() instanceof Boolean enabled)) {
+            throw new InvalidAttributeValueException("Enabled must be a boolean, not " + attribute.getValue());
+        }
+        setEnabled(enabled);
+    }
+
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // JMX leaves unknown attributes out of the list
+            }
+        }
+        return list;
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+        AttributeList set = new AttributeList();
+        for (Attribute attribute : attributes.asList()) {
+            try {
+                setAttribute(attribute);
+                set.add(attribute);
+            } catch (AttributeNotFoundException | InvalidAttributeValueException e) {
+                // JMX leaves attributes that could not be set out of the list
+            }
+        }
+        return set;
+    }
+
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (actionName.equals("reset")) {
+            reset();
+            return null;
+        }
+        if (actionName.equals("snapshot")) {
+            return snapshotString();
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operation " + actionName);
+    }
+
+    public MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[1 + EVENTS.length + 2 * TIMERS.length];
+        attributes[0] = new MBeanAttributeInfo("Enabled", "boolean", "Whether metrics are being recorded",
+                true, true, true);
+        for (int i = 0; i < EVENTS.length; i++) {
+            attributes[1 + i] = new MBeanAttributeInfo(attributeName(EVENTS[i]), "long",
+                    "Number of " + EVENTS[i].name().toLowerCase() + " events", true, false, false);
+        }
+        for (int i = 0; i < TIMERS.length; i++) {
+            int at = 1 + EVENTS.length + 2 * i;
+            attributes[at] = new MBeanAttributeInfo("CommandMeanMicros_" + timerName(i), "double",
+                    "Mean time of sampled " + timerName(i) + " commands", true, false, false);
+            attributes[at + 1] = new MBeanAttributeInfo("CommandMaxMicros_" + timerName(i), "double",
+                    "Longest sampled " + timerName(i) + " command", true, false, false);
+        }
+        MBeanOperationInfo[] operations = {
+                new MBeanOperationInfo("reset", "Sets every counter and timer to zero",
+                        new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+                new MBeanOperationInfo("snapshot", "Every counter and timer as text",
+                        new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO)
+        };
+        return new MBeanInfo(GameMetrics.class.getName(), "Treasure Hunter gameplay metrics",
+                attributes, null, operations, null);
+    }
+
+    private static String attributeName(Event event) {
+        StringBuilder name = new StringBuilder();
+        for (String word : event.name().split("_")) {
+            name.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+        }
+        return name.toString();
+    }
+
+    private static String timerName(int index) {
+        return index < COMMANDS.length() ? String.valueOf(COMMANDS.charAt(index)) : "other";
+    }
+
+    private static LongAdder[] buildCounters() {
+        LongAdder[] counters = new LongAdder[EVENTS.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static Timer[] buildTimers() {
+        Timer[] timers = new Timer[COMMANDS.length() + 1];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new Timer();
+        }
+        return timers;
+    }
+
+    /**
+     * One game's counts since it last flushed them. A tally belongs to a single game, so it needs no locking.
+     */
+    public static final class Tally {
+        // instance variables
+        private final int[] counts = new int[EVENTS.length];
+
+        /**
+         * Counts one occurrence of an event, if metrics are on.
+         *
+         * @param event The event.
+         */
+        public void count(Event event) {
+            if (enabled) {
+                counts[event.ordinal()]++;
+            }
+        }
+
+        /**
+         * Adds the counts to the process-wide totals and starts again from zero.
+         */
+        public void flush() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    COUNTERS[i].add(counts[i]);
+                    counts[i] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * The sampled running time of one kind of menu command.
+     */
+    private static final class Timer {
+        // instance variables
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        double meanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e3 / n;
+        }
+    }
+}
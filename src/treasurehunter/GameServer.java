@@ -0,0 +1,193 @@
+package treasurehunter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts Treasure Hunter for many players over line-oriented TCP connections, e.g. with telnet or nc.<p>
+ * Each connection gets its own GameSession running on a virtual thread, so thousands of players that are
+ * mostly waiting for input cost little more than their game state.
+ * With a journal directory, every session is recorded there for replay with JournalReplayer.
+ * With a leaderboard file, every finished game is recorded on a Leaderboard kept in that file.
+ * With a transcript directory, everything each session showed its player is kept in a TranscriptArchive there,
+ * and session numbers carry on from the last one archived, so each names one transcript across restarts.
+ * With -Dtreasurehunter.market=true, every session's shops trade through one shared Market, so prices follow what
+ * all players buy and sell. Journals of such sessions record the commands but not the prices, so they may not
+ * replay exactly.
+ * Gameplay metrics are published over JMX; see GameMetrics for how to switch them on.<p>
+ * Usage: GameServer [port] [maxSessions] [idleTimeoutSeconds] [journalDirectory | -] [leaderboardFile | -]
+ *        [transcriptDirectory]
+ */
+
+public class GameServer {
+    // constants
+    private static final int BACKLOG = 4096;
+    private static final byte[] SERVER_FULL = "The server is full, try again later.\n".getBytes(StandardCharsets.UTF_8);
+
+    // instance variables
+    private int port;
+    private SessionRegistry registry;
+    private long idleTimeoutNanos;
+    private Path journalDirectory;
+    private Leaderboard leaderboard;
+    private TranscriptArchive archive;
+    private Market market;
+    private ServerSocket serverSocket;
+    private ScheduledExecutorService reaper;
+    private long nextSessionId;
+
+    /**
+     * @param port The port to listen on, or 0 for any free port.
+     * @param maxSessions The most sessions that may be live at once.
+     * @param idleTimeoutSeconds How long a session may wait for its player before it is evicted.
+     * @param journalDirectory Where session journals are written, or null to keep none.
+     * @param leaderboard Where finished games are recorded, or null to keep no leaderboard.
+     * @param archive Where session transcripts are kept, or null to keep none.
+     * @param market The market every session's shops trade through, or null for fixed prices.
+     */
+    public GameServer(int port, int maxSessions, int idleTimeoutSeconds, Path journalDirectory,
+                      Leaderboard leaderboard, TranscriptArchive archive, Market market) {
+        this.port = port;
+        this.journalDirectory = journalDirectory;
+        this.leaderboard = leaderboard;
+        this.archive = archive;
+        this.market = market;
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        registry = new SessionRegistry(maxSessions, idleTimeoutNanos);
+        nextSessionId = archive == null ? 0 : archive.getLastSessionId() + 1;
+    }
+
+    /**
+     * Opens the listening socket and starts evicting idle sessions.
+     *
+     * @return The port the server is listening on.
+     */
+    public int start() throws IOException {
+        if (journalDirectory != null) {
+            Files.createDirectories(journalDirectory);
+        }
+        serverSocket = new ServerSocket(port, BACKLOG);
+        reaper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory());
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4);
+        reaper.scheduleAtFixedRate(() -> registry.evictIdle(System.nanoTime()), period, period, TimeUnit.MILLISECONDS);
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is stopped, starting a virtual thread for each session.
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            try {
+                startSession(socket);
+            } catch (IOException | UncheckedIOException e) {
+                // one bad connection, or a journal that cannot be written, must not stop the server
+                System.err.println("Could not start a session: " + e);
+                close(socket);
+            }
+        }
+    }
+
+    /**
+     * Starts a session for a new connection, or turns it away if the server is full.
+     */
+    private void startSession(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        long id = nextSessionId++;
+        long seed = System.nanoTime() ^ (id << 32);
+        Journal journal = null;
+        if (journalDirectory != null) {
+            String name = "session-" + System.currentTimeMillis() + "-" + id + Journal.EXTENSION;
+            journal = new Journal(journalDirectory.resolve(name), seed);
+        }
+        GameSession session;
+        try {
+            session = new GameSession(id, socket, registry, seed, journal, leaderboard, archive, market);
+        } catch (IOException e) {
+            if (journal != null) {
+                journal.finish(null);
+            }
+            throw e;
+        }
+        if (registry.register(session)) {
+            Thread.ofVirtual().name("session-" + id).start(session);
+        } else {
+            if (journal != null) {
+                journal.finish(null);
+            }
+            refuse(socket);
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes every session and writes out the leaderboard and transcripts.
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        reaper.shutdownNow();
+        registry.closeAll();
+        if (leaderboard != null) {
+            leaderboard.close();
+        }
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    public SessionRegistry getRegistry() {
+        return registry;
+    }
+
+    private void refuse(Socket socket) {
+        try (OutputStream out = socket.getOutputStream()) {
+            out.write(SERVER_FULL);
+        } catch (IOException e) {
+            // the player is turned away either way
+        } finally {
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int idleTimeout = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        Path journals = args.length > 3 && !args[3].equals("-") ? Path.of(args[3]) : null;
+        Leaderboard leaderboard = args.length > 4 && !args[4].equals("-") ? new Leaderboard(Path.of(args[4])) : null;
+        TranscriptArchive archive = args.length > 5
+                ? new TranscriptArchive(Path.of(args[5]), TranscriptArchive.DEFAULT_SEGMENT_SIZE) : null;
+        Market market = Boolean.getBoolean("treasurehunter.market") ? new Market() : null;
+
+        GameMetrics.start(System.out);
+        GameServer server = new GameServer(port, maxSessions, idleTimeout, journals, leaderboard, archive,
+                market);
+        System.out.println("Treasure Hunter server listening on port " + server.start());
+        server.serve();
+    }
+}
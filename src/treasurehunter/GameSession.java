@@ -0,0 +1,194 @@
+package treasurehunter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.awt.Color;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.SplittableRandom;
+
+/**
+ * One player's game on a GameServer.<p>
+ * A session owns its connection, its output sink and its own TreasureHunter, Hunter and Town,
+ * so nothing is shared with other sessions. It is also the game's CommandSource: each line the player
+ * sends is one command, and pending output is flushed just before waiting for the next line.<p>
+ * It is the game's OutputSink as well, so a broken connection simply ends the session at the next command
+ * instead of throwing out of the middle of a turn. When a journal is attached, every command the game reads
+ * and the final state are recorded for replay. When the server keeps a leaderboard, the finished game is recorded
+ * on it and the player is shown the best games of their difficulty. When the server keeps a TranscriptArchive,
+ * everything the player was shown, and each line they sent, is appended to it before the session waits for input.
+ * When the server runs a Market, the session's shops trade through it.
+ */
+
+public class GameSession implements CommandSource, OutputSink, Runnable {
+    // constants
+    private static final int INPUT_BUFFER_SIZE = 256;
+    private static final int OUTPUT_BUFFER_SIZE = 2048;
+    private static final int LEADERBOARD_SHOWN = 5;
+
+    // instance variables
+    private long id;
+    private Socket socket;
+    private SessionRegistry registry;
+    private long seed;
+    private Journal journal;
+    private Leaderboard leaderboard;
+    private TranscriptArchive archive;
+    private Market market;
+    private StringBuilder transcript;
+    private LineReader reader;
+    private AnsiTerminalSink output;
+    private volatile long lastActivity;
+    private volatile boolean closed;
+
+    /**
+     * @param id The session's number, unique on its server.
+     * @param socket The player's connection.
+     * @param registry The registry the session removes itself from when it ends.
+     * @param seed The seed for the session's random number source.
+     * @param journal The journal the session is recorded in, or null for none.
+     * @param leaderboard The leaderboard the finished game is recorded on, or null for none.
+     * @param archive The archive the session's transcript is kept in, or null for none.
+     * @param market The market the session's shops trade through, or null for fixed prices.
+     */
+    public GameSession(long id, Socket socket, SessionRegistry registry, long seed, Journal journal,
+                       Leaderboard leaderboard, TranscriptArchive archive, Market market) throws IOException {
+        this.id = id;
+        this.socket = socket;
+        this.registry = registry;
+        this.seed = seed;
+        this.journal = journal;
+        this.leaderboard = leaderboard;
+        this.archive = archive;
+        this.market = market;
+        transcript = archive == null ? null : new StringBuilder();
+        reader = new LineReader(socket.getInputStream(), false, INPUT_BUFFER_SIZE);
+        output = new AnsiTerminalSink(Channels.newChannel(socket.getOutputStream()), false, OUTPUT_BUFFER_SIZE);
+        lastActivity = System.nanoTime();
+        closed = false;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Plays the session's game until the player wins, loses, exits or disconnects.
+     */
+    public void run() {
+        TreasureHunter game = null;
+        try {
+            CommandSource commands = journal == null ? this : new JournalingCommandSource(this, journal);
+            game = new TreasureHunter(commands, this, new SplittableRandom(seed), null, market);
+            game.play();
+            if (leaderboard != null) {
+                leaderboard.record(game);
+                showLeaderboard(game);
+            }
+            flush();
+        } finally {
+            archiveTranscript();
+            close();
+            registry.unregister(this);
+            if (journal != null) {
+                journal.finish(game);
+            }
+        }
+    }
+
+    /**
+     * Shows the player the best games of the difficulty they just played.
+     */
+    private void showLeaderboard(TreasureHunter game) {
+        char mode = Leaderboard.modeOf(game);
+        print("\nBest hunters on this server (" + mode + "):\n", Color.BLACK);
+        int rank = 1;
+        for (Leaderboard.Entry entry : leaderboard.top(mode, LEADERBOARD_SHOWN)) {
+            print(rank++ + ". " + entry.infoString() + "\n", Color.BLACK);
+        }
+    }
+
+    public void print(String text, Color color) {
+        if (closed) {
+            return;
+        }
+        if (transcript != null) {
+            transcript.append(text);
+        }
+        try {
+            output.print(text, color);
+        } catch (UncheckedIOException e) {
+            // the player disconnected; the game ends at its next command
+            close();
+        }
+    }
+
+    public void clear() {
+        if (!closed) {
+            output.clear();
+        }
+    }
+
+    private void flush() {
+        archiveTranscript();
+        if (closed) {
+            return;
+        }
+        try {
+            output.flush();
+        } catch (UncheckedIOException e) {
+            close();
+        }
+    }
+
+    public String nextLine() {
+        if (closed) {
+            return "x";
+        }
+        flush();
+        try {
+            String line = reader.nextLine();
+            lastActivity = System.nanoTime();
+            if (transcript != null) {
+                transcript.append("> ").append(line).append('\n');
+            }
+            return line;
+        } catch (UncheckedIOException e) {
+            close();
+            return "x";
+        }
+    }
+
+    /**
+     * Appends what the session printed since it last did so to the archive.
+     * If the archive cannot take it, e.g. because the disk is full, the session stops archiving and plays on.
+     */
+    private void archiveTranscript() {
+        if (transcript == null || transcript.length() == 0) {
+            return;
+        }
+        try {
+            archive.append(id, transcript);
+            transcript.setLength(0);
+        } catch (UncheckedIOException e) {
+            System.err.println("Session " + id + " stopped archiving its transcript: " + e.getCause());
+            transcript = null;
+        }
+    }
+
+    /**
+     * Closes the connection. A blocked read in the session's game returns at once and the game exits.
+     */
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing more can be done with a broken connection
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package treasurehunter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Encodes the complete state of a game in a small, fixed-layout binary record so it can be parked and resumed.<p>
+ * Layout of version 2, SIZE bytes, multi-byte values big-endian:
+ * <pre>
+ *  0      version (0 marks an empty record)
+ *  1      game flags: hard, easy, test, samurai
+ *  2      hunter flags: samurai, win, lose
+ *  3      kit bitmask (one bit per Item)
+ *  4      treasure bitmask (one bit per Treasure)
+ *  5      terrain, as the ordinal of the Item needed to cross it
+ *  6      town treasure ordinal
+ *  7      town flags: tough, dug, treasure dug, brawled
+ *  8-11   gold
+ *  12-15  turns
+ *  16-23  seed for the restored game's random number source
+ *  24-31  id of the current town in the game's World, 0 without one
+ *  32     hunter name length in bytes
+ *  33-55  hunter name, UTF-8, cut to fit
+ * </pre>
+ * Version 1 records, 48 bytes without the town id, can still be read; upgrade() turns one into the current layout.
+ * A restored game draws from a new generator built from the recorded seed, so resuming the same record
+ * with the same commands always plays out the same way.
+ */
+
+public final class GameSnapshot {
+    // constants
+    public static final int SIZE = 56;
+    public static final byte VERSION = 2;
+    static final int VERSION_1_SIZE = 48;
+    private static final int TOWN_ID_OFFSET = 24;
+    private static final int NAME_LENGTH_OFFSET = 32;
+    private static final int NAME_OFFSET = 33;
+    private static final int MAX_NAME_BYTES = SIZE - NAME_OFFSET;
+    private static final Item[] ITEMS = Item.values();
+    private static final Treasure[] TREASURES = Treasure.values();
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a game into a buffer at the given offset, without moving the buffer's position.
+     *
+     * @param game A game that has been started.
+     * @param resumeSeed The seed the restored game's random number source will be built from.
+     * @param buffer The buffer to write into.
+     * @param offset Where in the buffer the record starts.
+     */
+    public static void encode(TreasureHunter game, long resumeSeed, ByteBuffer buffer, int offset) {
+        Hunter hunter = game.getHunter();
+        Town town = game.getCurrentTown();
+        if (hunter == null || town == null) {
+            throw new IllegalStateException("Only a game that has been started can be saved");
+        }
+        int gameFlags = flag(game.isHardMode(), 0) | flag(game.isEasyMode(), 1)
+                | flag(game.isTestMode(), 2) | flag(game.isSamurai(), 3);
+        int hunterFlags = flag(hunter.isSamurai(), 0) | flag(hunter.win, 1) | flag(hunter.lose, 2);
+        int townFlags = flag(town.isToughTown(), 0) | flag(town.getDug(), 1)
+                | flag(town.getTreasureDig(), 2) | flag(town.getBrawled(), 3);
+
+        buffer.put(offset, VERSION);
+        buffer.put(offset + 1, (byte) gameFlags);
+        buffer.put(offset + 2, (byte) hunterFlags);
+        buffer.put(offset + 3, (byte) hunter.getKitMask());
+        buffer.put(offset + 4, (byte) hunter.getTreasureMask());
+        buffer.put(offset + 5, (byte) town.getTerrain().getNeededKitItem().ordinal());
+        buffer.put(offset + 6, (byte) town.getTreasure().ordinal());
+        buffer.put(offset + 7, (byte) townFlags);
+        buffer.putInt(offset + 8, hunter.gold);
+        buffer.putInt(offset + 12, game.getTurns());
+        buffer.putLong(offset + 16, resumeSeed);
+        buffer.putLong(offset + TOWN_ID_OFFSET, game.getCurrentTownId());
+
+        byte[] name = hunter.getHunterName().getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(name.length, MAX_NAME_BYTES);
+        // don't cut a multi-byte character in half
+        while (length < name.length && (name[length] & 0xc0) == 0x80) {
+            length--;
+        }
+        buffer.put(offset + NAME_LENGTH_OFFSET, (byte) length);
+        buffer.put(offset + NAME_OFFSET, name, 0, length);
+        for (int i = length; i < MAX_NAME_BYTES; i++) {
+            buffer.put(offset + NAME_OFFSET + i, (byte) 0);
+        }
+    }
+
+    /**
+     * @return A new SIZE-byte array holding a snapshot of the game.
+     */
+    public static byte[] encode(TreasureHunter game, long resumeSeed) {
+        byte[] record = new byte[SIZE];
+        encode(game, resumeSeed, ByteBuffer.wrap(record), 0);
+        return record;
+    }
+
+    /**
+     * Rebuilds a game from a snapshot. Call resume() on the result to carry on playing.
+     *
+     * @param buffer The buffer holding the record.
+     * @param offset Where in the buffer the record starts.
+     * @param input Where the restored game's commands come from.
+     * @param output Where the restored game's text is shown.
+     * @return The restored game, or null if the record is empty.
+     */
+    public static TreasureHunter decode(ByteBuffer buffer, int offset, CommandSource input, OutputSink output) {
+        return decode(buffer, offset, input, output, null);
+    }
+
+    /**
+     * Rebuilds a game that travels around a World from a snapshot, in the town it was saved in.
+     *
+     * @param buffer The buffer holding the record.
+     * @param offset Where in the buffer the record starts.
+     * @param input Where the restored game's commands come from.
+     * @param output Where the restored game's text is shown.
+     * @param world The world the game was saved in, or null for a game without one.
+     * @return The restored game, or null if the record is empty.
+     */
+    public static TreasureHunter decode(ByteBuffer buffer, int offset, CommandSource input, OutputSink output,
+                                        World world) {
+        byte version = buffer.get(offset);
+        if (version == 0) {
+            return null;
+        }
+        if (version != VERSION && version != 1) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        int gameFlags = buffer.get(offset + 1);
+        int hunterFlags = buffer.get(offset + 2);
+        int kit = buffer.get(offset + 3) & 0xff;
+        int treasures = buffer.get(offset + 4) & 0xff;
+        Item neededItem = ITEMS[buffer.get(offset + 5)];
+        Treasure townTreasure = TREASURES[buffer.get(offset + 6)];
+        int townFlags = buffer.get(offset + 7);
+        int gold = buffer.getInt(offset + 8);
+        int turns = buffer.getInt(offset + 12);
+        long resumeSeed = buffer.getLong(offset + 16);
+        long townId = version == 1 ? 0 : buffer.getLong(offset + TOWN_ID_OFFSET);
+        int nameOffset = version == 1 ? TOWN_ID_OFFSET : NAME_LENGTH_OFFSET;
+        int length = buffer.get(offset + nameOffset);
+        byte[] name = new byte[length];
+        buffer.get(offset + nameOffset + 1, name);
+
+        Hunter hunter = new Hunter(new String(name, StandardCharsets.UTF_8), gold);
+        hunter.restoreMasks(kit, treasures);
+        if (isSet(hunterFlags, 0)) {
+            hunter.makeSamurai();
+        }
+        hunter.win = isSet(hunterFlags, 1);
+        hunter.lose = isSet(hunterFlags, 2);
+
+        TreasureHunter game = new TreasureHunter(input, output, new SplittableRandom(resumeSeed), world);
+        game.restore(hunter, isSet(gameFlags, 0), isSet(gameFlags, 1), isSet(gameFlags, 2), isSet(gameFlags, 3),
+                turns, townId, Terrain.forItem(neededItem), townTreasure,
+                isSet(townFlags, 0), isSet(townFlags, 1), isSet(townFlags, 2), isSet(townFlags, 3));
+        return game;
+    }
+
+    public static TreasureHunter decode(byte[] record, CommandSource input, OutputSink output) {
+        return decode(ByteBuffer.wrap(record), 0, input, output);
+    }
+
+    public static TreasureHunter decode(byte[] record, CommandSource input, OutputSink output, World world) {
+        return decode(ByteBuffer.wrap(record), 0, input, output, world);
+    }
+
+    /**
+     * @param record A record of the current or an earlier version.
+     * @return The record in the current layout; a version 1 record gets town id 0.
+     */
+    public static byte[] upgrade(byte[] record) {
+        if (record.length != VERSION_1_SIZE || record[0] != 1) {
+            return record;
+        }
+        byte[] upgraded = new byte[SIZE];
+        System.arraycopy(record, 0, upgraded, 0, TOWN_ID_OFFSET);
+        System.arraycopy(record, TOWN_ID_OFFSET, upgraded, NAME_LENGTH_OFFSET, VERSION_1_SIZE - TOWN_ID_OFFSET);
+        upgraded[0] = VERSION;
+        return upgraded;
+    }
+
+    /**
+     * @return A readable summary of a record, for reports and debugging.
+     */
+    public static String describe(byte[] record) {
+        record = upgrade(record);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (record.length != SIZE || buffer.get(0) != VERSION) {
+            return "unreadable snapshot";
+        }
+        int kit = buffer.get(3) & 0xff;
+        int treasures = buffer.get(4) & 0xff;
+        StringBuilder str = new StringBuilder();
+        str.append("name=").append(new String(record, NAME_OFFSET, buffer.get(NAME_LENGTH_OFFSET),
+                StandardCharsets.UTF_8));
+        str.append(" gold=").append(buffer.getInt(8));
+        str.append(" turns=").append(buffer.getInt(12));
+        str.append(" kit=[");
+        for (Item item : ITEMS) {
+            if ((kit & item.mask()) != 0) {
+                str.append(' ').append(item);
+            }
+        }
+        str.append(" ] treasures=[");
+        for (Treasure treasure : TREASURES) {
+            if ((treasures & treasure.mask()) != 0) {
+                str.append(' ').append(treasure);
+            }
+        }
+        str.append(" ] game flags=").append(Integer.toBinaryString(buffer.get(1) & 0xff));
+        str.append(" hunter flags=").append(Integer.toBinaryString(buffer.get(2) & 0xff));
+        str.append(" terrain=").append(ITEMS[buffer.get(5)]);
+        str.append(" town treasure=").append(TREASURES[buffer.get(6)]);
+        str.append(" town flags=").append(Integer.toBinaryString(buffer.get(7) & 0xff));
+        str.append(" town id=").append(buffer.getLong(TOWN_ID_OFFSET));
+        return str.toString();
+    }
+
+    private static int flag(boolean value, int bit) {
+        return value ? 1 << bit : 0;
+    }
+
+    private static boolean isSet(int flags, int bit) {
+        return (flags & (1 << bit)) != 0;
+    }
+}
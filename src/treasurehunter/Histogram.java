@@ -0,0 +1,128 @@
+package treasurehunter;
+
+/**
+ * A fixed-size histogram of long values that can be merged with others and queried for percentiles.<p>
+ * Values below 32 get a bucket each. Larger values share buckets whose width grows with the value,
+ * 16 buckets per power of two, so every recorded value is reported to within about 6%.<p>
+ * The buckets are allocated once, in the constructor, so recording never allocates and a histogram stays
+ * the same size however many values it has seen. Negative values are counted in the bucket for zero,
+ * but still show up exactly as the minimum.
+ */
+
+public class Histogram {
+    // constants
+    private static final int EXACT = 32;
+    private static final int PER_POWER = 16;
+    private static final int FIRST_SHARED_POWER = 5;
+    private static final int BUCKETS = EXACT + (Long.SIZE - 1 - FIRST_SHARED_POWER) * PER_POWER;
+
+    // instance variables
+    private long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    public Histogram() {
+        counts = new long[BUCKETS];
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Counts one value.
+     *
+     * @param value The value to count.
+     */
+    public void record(long value) {
+        counts[bucketFor(Math.max(value, 0))]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values counted by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void merge(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Finds the value that the given share of all counted values are at or below.
+     * The answer is the largest value in the matching bucket, and never more than the true maximum.
+     *
+     * @param percentile The share, from 0 to 100.
+     * @return The value at that percentile, or 0 if nothing was counted.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, highestValueIn(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param label The name printed in front of the numbers.
+     * @return A single printable line with the mean and the usual percentiles.
+     */
+    public String infoString(String label) {
+        return String.format("%-13s mean %8.2f  min %6d  p50 %6d  p90 %6d  p99 %6d  p99.9 %6d  max %6d%n",
+                label, getMean(), getMin(), getValueAtPercentile(50), getValueAtPercentile(90),
+                getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+
+    private static int bucketFor(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int power = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = power - 4;
+        return EXACT + (power - FIRST_SHARED_POWER) * PER_POWER + (int) (value >>> shift) - PER_POWER;
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int power = (bucket - EXACT) / PER_POWER + FIRST_SHARED_POWER;
+        int shift = power - 4;
+        long lowest = (long) ((bucket - EXACT) % PER_POWER + PER_POWER) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,361 @@
+package treasurehunter;
+
+/**
+ * Hunter Class<br /><br />
+ * This class represents the treasure hunter character (the player) in the Treasure Hunt game.
+ * The kit and the collected treasures are each stored as a bitmask with one bit per Item or Treasure.
+ * The printable kit and treasure lists are built once per mask, and the hunter's info text is only rebuilt
+ * after the gold, kit or treasures change.
+ * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
+ */
+
+public class Hunter {
+    // constants
+    private static final Item[] ITEMS = Item.values();
+    private static final Treasure[] TREASURES = Treasure.values();
+    private static final String[] INVENTORIES = buildInventories();
+    private static final String[] TREASURE_LISTS = buildTreasureLists();
+
+    //instance variables
+    private String hunterName;
+    private int kit;
+    private int collectedTreasures;
+    public int gold;
+    public boolean lose;
+    public boolean win;
+    private boolean samurai;
+    private int brawlsWon;
+    private int brawlsLost;
+    private int itemsBroken;
+    private GameMetrics.Tally tally;
+    private String info;
+    private int infoGold;
+    private boolean infoDirty;
+
+    /**
+     * The base constructor of a Hunter assigns the name to the hunter and an empty kit.
+     *
+     * @param hunterName The hunter's name.
+     * @param startingGold The gold the hunter starts with.
+     */
+    public Hunter(String hunterName, int startingGold) {
+        this.hunterName = hunterName;
+        kit = 0; // one bit per Item
+        collectedTreasures = 0; // one bit per collectible Treasure
+        gold = startingGold;
+        lose = false;
+        win = false;
+        samurai = false;
+        infoDirty = true;
+        tally = new GameMetrics.Tally();
+    }
+
+    //Accessors
+    public String getHunterName() {
+        return hunterName;
+    }
+
+    public void makeSamurai() {
+        samurai = true;
+    }
+
+    public boolean isSamurai() {
+        return samurai;
+    }
+    /**
+     * Updates the amount of gold the hunter has.
+     *
+     * @param modifier Amount to modify gold by.
+     */
+    public void changeGold(int modifier) {
+        gold += modifier;
+        if (gold < 0) {
+            gold = 0;
+        }
+    }
+
+    public void setGold(int gold) {
+        this.gold = gold;
+    }
+
+    /**
+     * Buys an item from a shop.
+     *
+     * @param item The item the hunter is buying.
+     * @param costOfItem The cost of the item.
+     * @return true if the item is successfully bought.
+     */
+    public boolean buyItem(Item item, int costOfItem) {
+        if (gold < costOfItem || hasItem(item)) {
+            return false;
+        }
+        gold -= costOfItem;
+        addItem(item);
+        return true;
+    }
+
+    public boolean buyItem(String item, int costOfItem) {
+        Item kitItem = Item.fromName(item);
+        return kitItem != null && buyItem(kitItem, costOfItem);
+    }
+
+    /**
+     * The Hunter is selling an item to a shop for gold.<p>
+     * This method checks to make sure that the seller has the item and that the seller is getting more than 0 gold.
+     *
+     * @param item The item being sold.
+     * @param buyBackPrice the amount of gold earned from selling the item
+     * @return true if the item was successfully sold.
+     */
+    public boolean sellItem(Item item, int buyBackPrice) {
+        if (buyBackPrice <= 0 || !hasItem(item)) {
+            return false;
+        }
+        gold += buyBackPrice;
+        removeItem(item);
+        return true;
+    }
+
+    public boolean sellItem(String item, int buyBackPrice) {
+        Item kitItem = Item.fromName(item);
+        return kitItem != null && sellItem(kitItem, buyBackPrice);
+    }
+
+    /**
+     * Removes an item from the kit by clearing its bit.
+     *
+     * @param item The item to be removed.
+     */
+    public void removeItem(Item item) {
+        kit &= ~item.mask();
+        infoDirty = true;
+    }
+
+    public void removeItemFromKit(String item) {
+        Item kitItem = Item.fromName(item);
+        if (kitItem != null) {
+            removeItem(kitItem);
+        }
+    }
+
+    /**
+     * Checks to make sure that the item is not already in the kit.
+     * If not, it sets the item's bit in the kit.
+     *
+     * @param item The item to be added to the kit.
+     * @return true if the item is not in the kit and has been added.
+     */
+    public boolean addItem(Item item) {
+        if (!hasItem(item)) {
+            kit |= item.mask();
+            infoDirty = true;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean addItem(String item) {
+        Item kitItem = Item.fromName(item);
+        return kitItem != null && addItem(kitItem);
+    }
+
+    /**
+     * Adds a treasure to the hunter's collection. Dust can never be collected.
+     *
+     * @param treasure The treasure found.
+     * @return true if the treasure was new and has been added.
+     */
+    public boolean addTreasure(Treasure treasure) {
+        if (treasure.isCollectible() && !hasTreasure(treasure)) {
+            collectedTreasures |= treasure.mask();
+            infoDirty = true;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean addTreasure(String treasure) {
+        Treasure found = Treasure.fromName(treasure);
+        return found != null && addTreasure(found);
+    }
+
+    /**
+     * Checks if the kit has the specified item.
+     *
+     * @param item The search item
+     * @return true if the item is found.
+     */
+    public boolean hasItem(Item item) {
+        return (kit & item.mask()) != 0;
+    }
+
+    public boolean hasItemInKit(String item) {
+        Item kitItem = Item.fromName(item);
+        return kitItem != null && hasItem(kitItem);
+    }
+
+    public boolean hasTreasure(Treasure treasure) {
+        return (collectedTreasures & treasure.mask()) != 0;
+    }
+
+    public boolean hasTreasureInCollectedTreasures(String treasure) {
+        Treasure found = Treasure.fromName(treasure);
+        return found != null && hasTreasure(found);
+    }
+
+    public boolean hasAllTreasures() {
+        return (collectedTreasures & Treasure.ALL_TREASURES) == Treasure.ALL_TREASURES;
+    }
+
+     /**
+     * Returns a printable representation of the inventory, which
+     * is a list of the items in kit, with a space between each item.
+     *
+     * @return The printable String representation of the inventory.
+     */
+    public String getInventory() {
+        return INVENTORIES[kit];
+    }
+
+    public String getCollectedTreasures() {
+        return TREASURE_LISTS[collectedTreasures];
+    }
+
+    /**
+     * The text is cached and only rebuilt when the kit or treasures have changed since it was built,
+     * or when the gold differs; gold is checked by value because it is also changed directly.
+     *
+     * @return A string representation of the hunter.
+     */
+    public String infoString() {
+        if (!infoDirty && infoGold == gold) {
+            return info;
+        }
+        StringBuilder str = new StringBuilder(64);
+        str.append(hunterName).append(" has ").append(gold).append(" gold");
+        if (!kitIsEmpty()) {
+            str.append(" and ").append(getInventory());
+        }
+        if (!collectedTreasuresIsEmpty()) {
+            str.append("\nTreasures found: ").append(getCollectedTreasures());
+        } else {
+            str.append("\nTreasures found: none");
+        }
+        info = str.toString();
+        infoGold = gold;
+        infoDirty = false;
+        return info;
+    }
+
+    /**
+     * @return The kit as a bitmask with one bit per Item.
+     */
+    int getKitMask() {
+        return kit;
+    }
+
+    /**
+     * @return The collected treasures as a bitmask with one bit per collectible Treasure.
+     */
+    int getTreasureMask() {
+        return collectedTreasures;
+    }
+
+    /**
+     * Replaces the kit and collected treasures, e.g. when restoring a saved game.
+     *
+     * @param kit The kit bitmask.
+     * @param collectedTreasures The treasure bitmask.
+     */
+    void restoreMasks(int kit, int collectedTreasures) {
+        this.kit = kit & Item.ALL_ITEMS;
+        this.collectedTreasures = collectedTreasures & Treasure.ALL_TREASURES;
+        infoDirty = true;
+    }
+
+    /**
+     * Counts a brawl the hunter fought, for the game's outcome statistics.
+     *
+     * @param won Whether the hunter won the brawl.
+     */
+    void recordBrawl(boolean won) {
+        if (won) {
+            brawlsWon++;
+        } else {
+            brawlsLost++;
+        }
+    }
+
+    /**
+     * Counts an item that broke while crossing terrain, for the game's outcome statistics.
+     */
+    void recordBrokenItem() {
+        itemsBroken++;
+    }
+
+    /**
+     * @return The GameMetrics counts of everything this hunter has done since the game last flushed them.
+     */
+    GameMetrics.Tally getTally() {
+        return tally;
+    }
+
+    int getBrawlsWon() {
+        return brawlsWon;
+    }
+
+    int getBrawlsLost() {
+        return brawlsLost;
+    }
+
+    int getItemsBroken() {
+        return itemsBroken;
+    }
+
+    /**
+     * Check if the kit is empty - meaning no item bit is set.
+     *
+     * @return true if kit is completely empty.
+     */
+    private boolean kitIsEmpty() {
+        return kit == 0;
+    }
+
+    public boolean collectedTreasuresIsEmpty() {
+        return collectedTreasures == 0;
+    }
+
+    /**
+     * @return The printable kit for every kit bitmask, each item followed by a space.
+     */
+    private static String[] buildInventories() {
+        String[] inventories = new String[Item.ALL_ITEMS + 1];
+        for (int mask = 0; mask < inventories.length; mask++) {
+            StringBuilder printableKit = new StringBuilder();
+            for (Item item : ITEMS) {
+                if ((mask & item.mask()) != 0) {
+                    printableKit.append(item.getItemName()).append(' ');
+                }
+            }
+            inventories[mask] = printableKit.toString();
+        }
+        return inventories;
+    }
+
+    /**
+     * @return The printable treasure list for every treasure bitmask, each treasure followed by a space.
+     */
+    private static String[] buildTreasureLists() {
+        String[] lists = new String[Treasure.ALL_TREASURES + 1];
+        for (int mask = 0; mask < lists.length; mask++) {
+            StringBuilder printableTreasures = new StringBuilder();
+            for (Treasure treasure : TREASURES) {
+                if ((mask & treasure.mask()) != 0) {
+                    printableTreasures.append(treasure.getTreasureName()).append(' ');
+                }
+            }
+            lists[mask] = printableTreasures.toString();
+        }
+        return lists;
+    }
+}
@@ -0,0 +1,77 @@
+package treasurehunter;
+
+/**
+ * The items a hunter can carry in their kit.<p>
+ * Each item owns one bit, so a whole kit fits in a single int and membership checks are a single mask test.
+ */
+
+public enum Item {
+    WATER("water"),
+    ROPE("rope"),
+    MACHETE("machete"),
+    HORSE("horse"),
+    BOAT("boat"),
+    BOOTS("boots"),
+    SHOVEL("shovel"),
+    SWORD("sword");
+
+    // constants
+    public static final int ALL_ITEMS = (1 << 8) - 1;
+
+    // instance variables
+    private final String itemName;
+    private final int mask;
+
+    Item(String itemName) {
+        this.itemName = itemName;
+        this.mask = 1 << ordinal();
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    /**
+     * @return The bit this item occupies in a kit.
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * Looks up an item by the lowercase name players type.
+     *
+     * @param name The item's name.
+     * @return The matching item, or null if there is no item with that name.
+     */
+    public static Item fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        switch (name) {
+            case "water":
+                return WATER;
+            case "rope":
+                return ROPE;
+            case "machete":
+                return MACHETE;
+            case "horse":
+                return HORSE;
+            case "boat":
+                return BOAT;
+            case "boots":
+                return BOOTS;
+            case "shovel":
+                return SHOVEL;
+            case "sword":
+                return SWORD;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return itemName;
+    }
+}
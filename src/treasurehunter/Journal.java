@@ -0,0 +1,160 @@
+package treasurehunter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * An append-only record of one session: the seed of its random number source, every line of input the game read
+ * (the name, the difficulty, then each menu and shop answer) and, once the session ends, a GameSnapshot of its
+ * final state. Since a game is fully determined by its seed and its input, a journal can be replayed headlessly
+ * to reproduce the session exactly.<p>
+ * The file is plain text:
+ * <pre>
+ * #treasurehunter-journal 1 seed=-4886402213370911011
+ * &gt; bob
+ * &gt; n
+ * &gt; b
+ * = 02000000...   (hex of the final GameSnapshot)
+ * </pre>
+ */
+
+public class Journal implements Closeable {
+    // constants
+    public static final String EXTENSION = ".journal";
+    private static final String HEADER = "#treasurehunter-journal 1 seed=";
+    private static final String INPUT = "> ";
+    private static final String FINAL_STATE = "= ";
+    private static final HexFormat HEX = HexFormat.of();
+
+    // instance variables
+    private BufferedWriter writer;
+    private boolean finished;
+
+    /**
+     * Starts a new journal file.
+     *
+     * @param file The file to write; it must not exist yet.
+     * @param seed The seed of the session's random number source.
+     */
+    public Journal(Path file, long seed) throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writer.write(HEADER + seed);
+        writer.write('\n');
+        writer.flush();
+        finished = false;
+    }
+
+    /**
+     * Appends a line of input the game has read. Each line is flushed, so a crash loses at most the line in progress.
+     *
+     * @param line The line exactly as the game received it.
+     */
+    public void record(String line) {
+        try {
+            writer.write(INPUT);
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the final state of the session and closes the journal.
+     *
+     * @param game The session's game, or null if it never started.
+     */
+    public void finish(TreasureHunter game) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (game != null && game.getHunter() != null && game.getCurrentTown() != null) {
+                writer.write(FINAL_STATE + HEX.formatHex(GameSnapshot.encode(game, 0)));
+                writer.write('\n');
+            }
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() throws IOException {
+        finished = true;
+        writer.close();
+    }
+
+    /**
+     * Reads a journal back. A line torn by a crash at the end of the file is ignored.
+     *
+     * @param file The journal file.
+     * @return The recorded session.
+     */
+    public static Recording read(Path file) throws IOException {
+        // split on '\n' only: a recorded line may itself contain '\r'
+        String[] lines = Files.readString(file, StandardCharsets.UTF_8).split("\n", -1);
+        // the last piece is empty, or a line torn by a crash, which is left out
+        int count = lines.length - 1;
+        if (count == 0 || !lines[0].startsWith(HEADER)) {
+            throw new IOException(file + " is not a Treasure Hunter journal");
+        }
+        try {
+            long seed = Long.parseLong(lines[0].substring(HEADER.length()));
+            List<String> inputs = new ArrayList<>(count);
+            byte[] finalState = null;
+            for (int i = 1; i < count; i++) {
+                String line = lines[i];
+                if (line.startsWith(INPUT)) {
+                    inputs.add(line.substring(INPUT.length()));
+                } else if (line.startsWith(FINAL_STATE)) {
+                    finalState = GameSnapshot.upgrade(HEX.parseHex(line.substring(FINAL_STATE.length())));
+                }
+            }
+            return new Recording(seed, inputs.toArray(new String[0]), finalState);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + " is corrupt", e);
+        }
+    }
+
+    /**
+     * A session as read back from a journal.
+     */
+    public static final class Recording {
+        private final long seed;
+        private final String[] inputs;
+        private final byte[] finalState;
+
+        Recording(long seed, String[] inputs, byte[] finalState) {
+            this.seed = seed;
+            this.inputs = inputs;
+            this.finalState = finalState;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public String[] getInputs() {
+            return inputs;
+        }
+
+        /**
+         * @return The recorded final GameSnapshot, or null if the session never finished.
+         */
+        public byte[] getFinalState() {
+            return finalState;
+        }
+    }
+}
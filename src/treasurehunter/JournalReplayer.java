@@ -0,0 +1,138 @@
+package treasurehunter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Replays session journals headlessly, as fast as the CPU allows and in parallel across files,
+ * and compares each replayed final state with the one recorded in the journal.<p>
+ * Usage: JournalReplayer [-t threads] file-or-directory...
+ */
+
+public class JournalReplayer {
+    // instance variables
+    private AtomicLong replayed;
+    private AtomicLong matched;
+    private AtomicLong unfinished;
+    private List<String> corrupt;
+    private AtomicLong commands;
+    private List<String> mismatches;
+
+    public JournalReplayer() {
+        replayed = new AtomicLong();
+        matched = new AtomicLong();
+        unfinished = new AtomicLong();
+        corrupt = new ArrayList<>();
+        commands = new AtomicLong();
+        mismatches = new ArrayList<>();
+    }
+
+    /**
+     * Replays a recorded session.
+     *
+     * @param recording The session to replay.
+     * @return The game after replaying every recorded line.
+     */
+    public static TreasureHunter replay(Journal.Recording recording) {
+        TreasureHunter game = new TreasureHunter(new ScriptedCommandSource(recording.getInputs()),
+                NullOutputSink.INSTANCE, new SplittableRandom(recording.getSeed()));
+        game.play();
+        return game;
+    }
+
+    /**
+     * Replays one journal file and checks its final state. A journal that cannot be read is counted as corrupt.
+     *
+     * @param file The journal.
+     */
+    public void check(Path file) {
+        Journal.Recording recording;
+        try {
+            recording = Journal.read(file);
+        } catch (IOException e) {
+            String report = String.valueOf(e.getMessage()).startsWith(file.toString()) ? e.getMessage()
+                    : file + ": " + e;
+            synchronized (corrupt) {
+                corrupt.add(report);
+            }
+            return;
+        }
+        TreasureHunter game = replay(recording);
+        replayed.incrementAndGet();
+        commands.addAndGet(recording.getInputs().length);
+        byte[] expected = recording.getFinalState();
+        if (expected == null) {
+            unfinished.incrementAndGet();
+            return;
+        }
+        byte[] actual = GameSnapshot.encode(game, 0);
+        if (Arrays.equals(expected, actual)) {
+            matched.incrementAndGet();
+        } else {
+            String report = file + "\n  recorded: " + GameSnapshot.describe(expected)
+                    + "\n  replayed: " + GameSnapshot.describe(actual);
+            synchronized (mismatches) {
+                mismatches.add(report);
+            }
+        }
+    }
+
+    /**
+     * Finds every journal under the given files and directories.
+     */
+    private static List<Path> findJournals(List<String> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String root : roots) {
+            try (Stream<Path> paths = Files.walk(Path.of(root))) {
+                paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(Journal.EXTENSION))
+                        .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> roots = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                roots.add(args[i]);
+            }
+        }
+        if (roots.isEmpty()) {
+            roots.add(".");
+        }
+
+        List<Path> files = findJournals(roots);
+        JournalReplayer replayer = new JournalReplayer();
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> files.parallelStream().forEach(replayer::check)).join();
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (String mismatch : replayer.mismatches) {
+            System.out.println("MISMATCH " + mismatch);
+        }
+        for (String file : replayer.corrupt) {
+            System.out.println("CORRUPT " + file);
+        }
+        System.out.printf("journals: %d replayed, %d matched, %d mismatched, %d without a final state, %d corrupt%n",
+                replayer.replayed.get(), replayer.matched.get(), replayer.mismatches.size(), replayer.unfinished.get(),
+                replayer.corrupt.size());
+        System.out.printf("%.2f s on %d threads, %.0f commands/s%n", seconds, threads, replayer.commands.get() / seconds);
+    }
+}
@@ -0,0 +1,26 @@
+package treasurehunter;
+
+/**
+ * Passes commands through from another CommandSource, recording each one in a Journal on the way.
+ */
+
+public class JournalingCommandSource implements CommandSource {
+    // instance variables
+    private CommandSource source;
+    private Journal journal;
+
+    /**
+     * @param source Where the commands really come from.
+     * @param journal Where each command is recorded.
+     */
+    public JournalingCommandSource(CommandSource source, Journal journal) {
+        this.source = source;
+        this.journal = journal;
+    }
+
+    public String nextLine() {
+        String line = source.nextLine();
+        journal.record(line);
+        return line;
+    }
+}
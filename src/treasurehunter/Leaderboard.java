@@ -0,0 +1,404 @@
+package treasurehunter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The best finished games for each difficulty, kept in memory and in an append-only log file.<p>
+ * Each mode's games are held in a ConcurrentSkipListSet ordered best first: most treasures, then most gold,
+ * then fewest turns. Sessions insert without taking any lock, and the top k of a mode are the first k entries,
+ * found in logarithmic time. Only the best CAPACITY games per mode are kept.<p>
+ * Inserts are handed to a single writer thread, which appends them to the log in batches. When the log holds
+ * more than twice as many games as are kept, the writer rewrites it with just the kept games and moves the new
+ * file over the old one, so a crash during compaction leaves the old log intact.
+ * Opening a leaderboard replays its log, ignoring a torn last line.<p>
+ * The log is plain text, one game per line:
+ * <pre>
+ * #treasurehunter-leaderboard 1
+ * n 2 57 31 bob   (mode, treasures, gold, turns, name)
+ * </pre>
+ * Usage: Leaderboard file [mode] [k]
+ */
+
+public class Leaderboard implements Closeable {
+    // constants
+    public static final int CAPACITY = 10_000;
+    public static final String MODES = "enhst";
+    private static final String HEADER = "#treasurehunter-leaderboard 1";
+    private static final int MIN_COMPACT_LINES = 1024;
+    private static final Entry END = new Entry(' ', "", 0, 0, 0, -1);
+    private static final Comparator<Entry> BEST_FIRST = Comparator
+            .comparingInt(Entry::getTreasures).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::getGold).reversed())
+            .thenComparingInt(Entry::getTurns)
+            .thenComparingLong(Entry::getSequence);
+
+    // instance variables
+    private Path file;
+    private List<ConcurrentSkipListSet<Entry>> boards;
+    private AtomicInteger[] sizes;
+    private AtomicLong nextSequence;
+    private LinkedBlockingQueue<Entry> pending;
+    private Thread writerThread;
+    private BufferedWriter writer;
+    private long linesInLog;
+    private volatile IOException writeFailure;
+
+    /**
+     * Opens a leaderboard, recovering every game recorded in its log.
+     *
+     * @param file The log file; it is created if it does not exist.
+     */
+    public Leaderboard(Path file) throws IOException {
+        this.file = file;
+        boards = new ArrayList<>(MODES.length());
+        sizes = new AtomicInteger[MODES.length()];
+        for (int i = 0; i < MODES.length(); i++) {
+            boards.add(new ConcurrentSkipListSet<>(BEST_FIRST));
+            sizes[i] = new AtomicInteger();
+        }
+        nextSequence = new AtomicLong();
+        pending = new LinkedBlockingQueue<>();
+        linesInLog = recover();
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (endsWithTornLine()) {
+            // finish the torn line so that the next game starts on a line of its own
+            writer.newLine();
+            writer.flush();
+        }
+        if (linesInLog == 0) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.flush();
+        }
+        writerThread = Thread.ofPlatform().name("leaderboard-writer").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Records a finished game. Games that never got past choosing a difficulty are ignored.
+     *
+     * @param game A game whose play() method has returned.
+     */
+    public void record(TreasureHunter game) {
+        Hunter hunter = game.getHunter();
+        if (hunter == null) {
+            return;
+        }
+        Entry entry = new Entry(modeOf(game), hunter.getHunterName(), Integer.bitCount(hunter.getTreasureMask()),
+                hunter.gold, game.getTurns(), nextSequence.getAndIncrement());
+        if (insert(entry) && writeFailure == null) {
+            pending.add(entry);
+        }
+    }
+
+    /**
+     * @param mode The difficulty, one of MODES.
+     * @param k The most games to return.
+     * @return The best k games of that difficulty, best first.
+     */
+    public List<Entry> top(char mode, int k) {
+        List<Entry> top = new ArrayList<>(Math.min(k, CAPACITY));
+        for (Entry entry : board(mode)) {
+            if (top.size() == k) {
+                break;
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    /**
+     * @param mode The difficulty, one of MODES.
+     * @return The number of games kept for that difficulty.
+     */
+    public int size(char mode) {
+        return sizes[MODES.indexOf(mode)].get();
+    }
+
+    /**
+     * Writes out every recorded game and closes the log.
+     */
+    public void close() throws IOException {
+        pending.add(END);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        if (writeFailure != null) {
+            throw new IOException("Could not write " + file, writeFailure);
+        }
+    }
+
+    /**
+     * @return Why the log stopped being written, or null if it is still being written.
+     */
+    public IOException getWriteFailure() {
+        return writeFailure;
+    }
+
+    /**
+     * @param game A game that has been played.
+     * @return The letter of the game's difficulty, one of MODES.
+     */
+    static char modeOf(TreasureHunter game) {
+        if (game.isTestMode()) {
+            return 't';
+        }
+        if (game.isSamurai()) {
+            return 's';
+        }
+        if (game.isHardMode()) {
+            return 'h';
+        }
+        return game.isEasyMode() ? 'e' : 'n';
+    }
+
+    /**
+     * Adds an entry to its mode's board and drops the worst game if the board is over capacity.
+     *
+     * @return false if the entry itself was not good enough to keep.
+     */
+    private boolean insert(Entry entry) {
+        int mode = MODES.indexOf(entry.mode);
+        ConcurrentSkipListSet<Entry> board = boards.get(mode);
+        board.add(entry);
+        if (sizes[mode].incrementAndGet() > CAPACITY) {
+            Entry worst = board.pollLast();
+            if (worst != null) {
+                sizes[mode].decrementAndGet();
+                return worst != entry;
+            }
+        }
+        return true;
+    }
+
+    private ConcurrentSkipListSet<Entry> board(char mode) {
+        int index = MODES.indexOf(mode);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        return boards.get(index);
+    }
+
+    /**
+     * Replays the log into the boards.
+     *
+     * @return The number of lines in the log, counting the header, or 0 if there is no log yet.
+     */
+    private long recover() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && !line.equals(HEADER)) {
+                throw new IOException(file + " is not a leaderboard log");
+            }
+            while (line != null) {
+                lines++;
+                line = reader.readLine();
+                Entry entry = line == null ? null : parse(line, nextSequence.get());
+                if (entry != null) {
+                    nextSequence.incrementAndGet();
+                    entry.logged = true;
+                    insert(entry);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private boolean endsWithTornLine() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    /**
+     * @return The entry written on the line, or null if the line is torn or malformed.
+     */
+    private static Entry parse(String line, long sequence) {
+        String[] fields = line.split(" ", 5);
+        if (fields.length < 5 || fields[0].length() != 1 || MODES.indexOf(fields[0].charAt(0)) < 0) {
+            return null;
+        }
+        try {
+            return new Entry(fields[0].charAt(0), fields[4], Integer.parseInt(fields[1]),
+                    Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), sequence);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends recorded games to the log in batches until the leaderboard is closed, compacting it when it
+     * has grown large. This thread is the only one that touches the file.
+     */
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean open = true;
+        try {
+            while (open) {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                for (Entry entry : batch) {
+                    if (entry == END) {
+                        open = false;
+                    } else {
+                        writer.write(entry.toLine());
+                        writer.newLine();
+                        entry.logged = true;
+                        linesInLog++;
+                    }
+                }
+                writer.flush();
+                batch.clear();
+                if (linesInLog > Math.max(MIN_COMPACT_LINES, 2L * totalSize())) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            // games are still ranked in memory, but no more are queued for a log that cannot be written
+            writeFailure = e;
+            pending.clear();
+            System.err.println("Leaderboard stopped writing " + file + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rewrites the log with only the games that are still kept. Games still waiting to be written are left out,
+     * since they will be appended to the new log when their turn comes.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        long lines = 1;
+        try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (ConcurrentSkipListSet<Entry> board : boards) {
+                for (Entry entry : board) {
+                    if (!entry.logged) {
+                        continue;
+                    }
+                    out.write(entry.toLine());
+                    out.newLine();
+                    lines++;
+                }
+            }
+        }
+        writer.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        linesInLog = lines;
+    }
+
+    private long totalSize() {
+        long total = 0;
+        for (AtomicInteger size : sizes) {
+            total += size.get();
+        }
+        return total;
+    }
+
+    /**
+     * One finished game on the leaderboard.
+     */
+    public static final class Entry {
+        // instance variables
+        private final char mode;
+        private final String name;
+        private final int treasures;
+        private final int gold;
+        private final int turns;
+        private final long sequence;
+        // only read and written by the thread that owns the log, once the entry has been published to it
+        private boolean logged;
+
+        Entry(char mode, String name, int treasures, int gold, int turns, long sequence) {
+            this.mode = mode;
+            this.name = name;
+            this.treasures = treasures;
+            this.gold = gold;
+            this.turns = turns;
+            this.sequence = sequence;
+        }
+
+        public char getMode() {
+            return mode;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTreasures() {
+            return treasures;
+        }
+
+        public int getGold() {
+            return gold;
+        }
+
+        public int getTurns() {
+            return turns;
+        }
+
+        /**
+         * @return The order the game was recorded in, which breaks ties between otherwise equal games.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        String toLine() {
+            return mode + " " + treasures + " " + gold + " " + turns + " " + name;
+        }
+
+        public String infoString() {
+            return name + ": " + treasures + " treasures, " + gold + " gold, " + turns + " turns";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args[0]);
+        String modes = args.length > 1 ? args[1] : MODES;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        try (Leaderboard leaderboard = new Leaderboard(file)) {
+            for (char mode : modes.toCharArray()) {
+                System.out.println(mode + " (" + leaderboard.size(mode) + " games)");
+                int rank = 1;
+                for (Entry entry : leaderboard.top(mode, k)) {
+                    System.out.println("  " + rank++ + ". " + entry.infoString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package treasurehunter;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * The one place a game's typed or piped input is read from, whether it comes from the console, a socket, a file
+ * or a string in memory.<p>
+ * Bytes are read from a channel or stream into a single reusable buffer and each line is found and decoded right where it
+ * lies in that buffer, so nothing is read ahead into a second buffer that another reader could miss.
+ * Single-character lines, which is what almost every menu and shop answer is, come from a table of shared strings
+ * and cost no allocation at all.<p>
+ * In word mode every whitespace-separated word is one command and # starts a comment, which is the script format
+ * ScriptRunner and ScriptedCommandSource use. Lines can be pushed back to be read again before anything else.
+ */
+
+public class LineReader implements CommandSource {
+    // constants
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final String[] SINGLE_CHARACTERS = buildSingleCharacters();
+
+    // instance variables
+    private ReadableByteChannel channel;
+    private InputStream stream;
+    private ByteBuffer buffer;
+    private boolean words;
+    private boolean endOfInput;
+    private ArrayDeque<String> pushedBack;
+    private long linesRead;
+
+    /**
+     * @param channel Where the input is read from.
+     * @param words Whether every word is a separate command instead of every line.
+     */
+    public LineReader(ReadableByteChannel channel, boolean words) {
+        this(channel, words, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel Where the input is read from.
+     * @param words Whether every word is a separate command instead of every line.
+     * @param bufferSize The starting size of the read buffer; it grows if a single line does not fit.
+     */
+    public LineReader(ReadableByteChannel channel, boolean words, int bufferSize) {
+        this.channel = channel;
+        this.words = words;
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+        endOfInput = false;
+        pushedBack = new ArrayDeque<>();
+        linesRead = 0;
+    }
+
+    /**
+     * Reads straight from a stream into the buffer's array. Sockets served on virtual threads should use this
+     * rather than wrapping their stream in a channel, since a wrapped stream holds a monitor while it blocks.
+     *
+     * @param stream Where the input is read from.
+     * @param words Whether every word is a separate command instead of every line.
+     * @param bufferSize The starting size of the read buffer; it grows if a single line does not fit.
+     */
+    public LineReader(InputStream stream, boolean words, int bufferSize) {
+        this((ReadableByteChannel) null, words, bufferSize);
+        this.stream = stream;
+    }
+
+    /**
+     * @param words Whether every word is a separate command instead of every line.
+     * @return A reader over the process's standard input.
+     */
+    public static LineReader standardInput(boolean words) {
+        return new LineReader(new FileInputStream(FileDescriptor.in).getChannel(), words);
+    }
+
+    /**
+     * Reads from text that is already in memory, without copying it into a second buffer.
+     *
+     * @param text The input.
+     * @param words Whether every word is a separate command instead of every line.
+     * @return A reader over the text.
+     */
+    public static LineReader of(String text, boolean words) {
+        LineReader reader = new LineReader((ReadableByteChannel) null, words, 0);
+        reader.buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        reader.endOfInput = true;
+        return reader;
+    }
+
+    /**
+     * Puts a line back so that it is the next one read.
+     *
+     * @param line The line to read again.
+     */
+    public void pushBack(String line) {
+        pushedBack.push(line);
+        linesRead--;
+    }
+
+    /**
+     * @return The number of lines handed out so far, not counting lines that were pushed back.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * @return true if there is another line or word to read.
+     */
+    public boolean hasNext() {
+        return !pushedBack.isEmpty() || findNext();
+    }
+
+    /**
+     * @return The next line or word, or the exit command ("x") once the input has run out.
+     */
+    public String nextLine() {
+        if (!hasNext()) {
+            return "x";
+        }
+        linesRead++;
+        if (!pushedBack.isEmpty()) {
+            return pushedBack.pop();
+        }
+        int start = buffer.position();
+        int end = start;
+        while (end < buffer.limit() && !isSeparator(buffer.get(end))) {
+            end++;
+        }
+        // in word mode the separator is left for findNext() to skip, since it may start a comment
+        buffer.position(!words && end < buffer.limit() ? end + 1 : end);
+        if (!words && end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return decode(start, end - start);
+    }
+
+    /**
+     * Moves the buffer's position to the start of the next line or word, reading more input when needed,
+     * and checks that the whole of it is in the buffer.
+     */
+    private boolean findNext() {
+        while (true) {
+            if (words && !skipBlanksAndComments()) {
+                fill();
+                continue;
+            }
+            int end = buffer.position();
+            while (end < buffer.limit() && !isSeparator(buffer.get(end))) {
+                end++;
+            }
+            if (end < buffer.limit() || (endOfInput && end > buffer.position())) {
+                return true;
+            }
+            if (endOfInput) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return false if the buffer ends inside a comment and more input has to be read to find its end.
+     */
+    private boolean skipBlanksAndComments() {
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get(buffer.position());
+            if (b == '#') {
+                int end = buffer.position();
+                while (end < buffer.limit() && buffer.get(end) != '\n') {
+                    end++;
+                }
+                if (end == buffer.limit() && !endOfInput) {
+                    return false;
+                }
+                buffer.position(end);
+            } else if (isSeparator(b)) {
+                buffer.position(buffer.position() + 1);
+            } else {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the unread part of the buffer and reads more after it, doubling the buffer if it is already full.
+     */
+    private void fill() {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        try {
+            int read;
+            if (stream == null) {
+                read = channel.read(buffer);
+            } else {
+                read = stream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (read > 0) {
+                    buffer.position(buffer.position() + read);
+                }
+            }
+            if (read < 0) {
+                endOfInput = true;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    private boolean isSeparator(byte b) {
+        if (words) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '#';
+        }
+        return b == '\n';
+    }
+
+    private String decode(int offset, int length) {
+        if (length == 1 && buffer.get(offset) >= 0) {
+            return SINGLE_CHARACTERS[buffer.get(offset)];
+        }
+        return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static String[] buildSingleCharacters() {
+        String[] strings = new String[128];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = String.valueOf((char) i);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,161 @@
+package treasurehunter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opens many concurrent sessions against a GameServer and reports how quickly it answers commands.<p>
+ * Every simulated player connects, waits until all players are connected, and then sends a series of
+ * commands that can never end the game (explore, dig and hunt), timing each one until the next menu prompt
+ * arrives. The latencies of all players are merged and reported as percentiles.<p>
+ * Usage: LoadGenerator [host] [port] [sessions] [commandsPerSession]
+ */
+
+public class LoadGenerator {
+    // constants
+    private static final String PROMPT = "What's your next move?";
+    private static final byte[][] COMMANDS = {ascii("e\n"), ascii("d\n"), ascii("h\n")};
+
+    // instance variables
+    private String host;
+    private int port;
+    private int sessions;
+    private int commandsPerSession;
+    private AtomicInteger connected;
+    private AtomicInteger failed;
+
+    public LoadGenerator(String host, int port, int sessions, int commandsPerSession) {
+        this.host = host;
+        this.port = port;
+        this.sessions = sessions;
+        this.commandsPerSession = commandsPerSession;
+        connected = new AtomicInteger();
+        failed = new AtomicInteger();
+    }
+
+    /**
+     * Runs every simulated player to completion.
+     *
+     * @return The latency of every command in nanoseconds, sorted.
+     */
+    public long[] run() throws InterruptedException {
+        long[][] latencies = new long[sessions][];
+        CountDownLatch allConnected = new CountDownLatch(sessions);
+        Thread[] players = new Thread[sessions];
+        for (int i = 0; i < sessions; i++) {
+            int player = i;
+            players[i] = Thread.ofVirtual().start(() -> latencies[player] = play(allConnected));
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+
+        int total = 0;
+        for (long[] playerLatencies : latencies) {
+            total += playerLatencies.length;
+        }
+        long[] merged = new long[total];
+        int pos = 0;
+        for (long[] playerLatencies : latencies) {
+            System.arraycopy(playerLatencies, 0, merged, pos, playerLatencies.length);
+            pos += playerLatencies.length;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    public int getConnected() {
+        return connected.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Plays one simulated player's session.
+     *
+     * @return The latency of each command the player sent.
+     */
+    private long[] play(CountDownLatch allConnected) {
+        long[] latencies = new long[commandsPerSession];
+        int sent = 0;
+        boolean countedDown = false;
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = socket.getOutputStream();
+            out.write(ascii("load\nn\n"));
+            out.flush();
+            awaitPrompt(in);
+            connected.incrementAndGet();
+            allConnected.countDown();
+            countedDown = true;
+            allConnected.await();
+
+            for (; sent < commandsPerSession; sent++) {
+                long start = System.nanoTime();
+                out.write(COMMANDS[sent % COMMANDS.length]);
+                out.flush();
+                awaitPrompt(in);
+                latencies[sent] = System.nanoTime() - start;
+            }
+            out.write(ascii("x\n"));
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            failed.incrementAndGet();
+            // a player that never connected must not keep the others waiting, but one that did has counted already
+            if (!countedDown) {
+                allConnected.countDown();
+            }
+        }
+        return Arrays.copyOf(latencies, sent);
+    }
+
+    private static void awaitPrompt(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        while (line != null && !line.contains(PROMPT)) {
+            line = in.readLine();
+        }
+        if (line == null) {
+            throw new IOException("The server closed the session");
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int commands = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        LoadGenerator generator = new LoadGenerator(host, port, sessions, commands);
+        long start = System.nanoTime();
+        long[] latencies = generator.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("sessions: %d connected, %d failed%n", generator.getConnected(), generator.getFailed());
+        System.out.printf("commands: %d in %.2f s (%.0f/s)%n", latencies.length, seconds, latencies.length / seconds);
+        System.out.printf("latency: p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6,
+                percentile(latencies, 99.9) / 1e6, percentile(latencies, 100) / 1e6);
+    }
+}
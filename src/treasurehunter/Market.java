@@ -0,0 +1,224 @@
+package treasurehunter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Demand-driven prices shared by every shop that trades through it, e.g. all the sessions on a GameServer.<p>
+ * Each item has a pressure: every purchase adds one, every sale takes one away, and it decays by half every
+ * halfLife. An item's prices are its fixed Shop prices times exp(elasticity * pressure), kept between
+ * MIN_FACTOR and MAX_FACTOR.<p>
+ * An item's whole state, its pressure in fixed point and the millisecond it was last traded, is packed into one long,
+ * and a trade is a single compare-and-set on that long, so shops never take a lock and trades in different items
+ * never touch the same value. Each item's long sits on its own cache line, so they do not contend in hardware
+ * either. Decay is never run as a task: a trade folds in the decay since the item's last trade, and a quote
+ * decays what it reads without writing it back.<p>
+ * A shop takes a quote of every item when a customer enters and charges those prices until they leave,
+ * so a price never changes between being shown and being paid.<p>
+ * Usage (self-check): Market [threads] [trades per thread]<br>
+ * Drives a market on a hand-set clock and checks its decay, clamping and concurrent trades, exiting with 1 on failure.
+ */
+
+public class Market {
+    // constants
+    public static final double DEFAULT_HALF_LIFE_SECONDS = 60;
+    public static final double DEFAULT_ELASTICITY = 0.02;
+    public static final double MIN_FACTOR = 0.5;
+    public static final double MAX_FACTOR = 2.0;
+    private static final int STRIDE = 8;                 // longs per item, one cache line
+    private static final int TIME_BITS = 40;              // millis, enough for 34 years
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final int MAX_PRESSURE = (1 << (63 - TIME_BITS)) - 1;
+    private static final double ONE_TRADE = 1 << 12;      // fixed-point scale of the pressure
+    private static final Item[] ITEMS = Item.values();
+
+    // instance variables
+    private final AtomicLongArray state;   // per item: pressure in the high 24 bits, millis of last trade in the low 40
+    private final double halfLifeMillis;
+    private final double elasticity;
+    private final int maxPressure;
+    private final LongSupplier clock;
+    private final long start;
+
+    public Market() {
+        this(DEFAULT_HALF_LIFE_SECONDS, DEFAULT_ELASTICITY);
+    }
+
+    /**
+     * @param halfLifeSeconds How long it takes an item's pressure to halve.
+     * @param elasticity How far one unit of pressure moves the log of a price.
+     */
+    public Market(double halfLifeSeconds, double elasticity) {
+        this(halfLifeSeconds, elasticity, System::nanoTime);
+    }
+
+    /**
+     * @param clock The time in nanoseconds.
+     */
+    Market(double halfLifeSeconds, double elasticity, LongSupplier clock) {
+        if (halfLifeSeconds <= 0 || elasticity <= 0) {
+            throw new IllegalArgumentException("The half-life and elasticity must be positive");
+        }
+        state = new AtomicLongArray(ITEMS.length * STRIDE);
+        halfLifeMillis = halfLifeSeconds * 1000;
+        this.elasticity = elasticity;
+        // beyond this the factor is clamped anyway
+        maxPressure = (int) Math.min(MAX_PRESSURE, Math.ceil(Math.log(MAX_FACTOR) / elasticity * ONE_TRADE));
+        this.clock = clock;
+        start = clock.getAsLong();
+    }
+
+    /**
+     * Records that a shop sold an item to a customer, raising its price.
+     */
+    public void bought(Item item) {
+        trade(item, (int) ONE_TRADE);
+    }
+
+    /**
+     * Records that a customer sold an item to a shop, lowering its price.
+     */
+    public void sold(Item item) {
+        trade(item, (int) -ONE_TRADE);
+    }
+
+    /**
+     * @return The factor every item's price is multiplied by right now, indexed by Item ordinal,
+     * all decayed to the same moment.
+     */
+    public double[] quote() {
+        long now = now();
+        double[] factors = new double[ITEMS.length];
+        for (Item item : ITEMS) {
+            factors[item.ordinal()] = factorOf(decay(state.get(item.ordinal() * STRIDE), now));
+        }
+        return factors;
+    }
+
+    /**
+     * @return The factor the item's price is multiplied by right now.
+     */
+    public double factor(Item item) {
+        return factorOf(decay(state.get(item.ordinal() * STRIDE), now()));
+    }
+
+    public String infoString() {
+        double[] factors = quote();
+        StringBuilder str = new StringBuilder("market:");
+        for (Item item : ITEMS) {
+            str.append(String.format(" %s x%.2f", item.getItemName(), factors[item.ordinal()]));
+        }
+        return str.toString();
+    }
+
+    private void trade(Item item, int delta) {
+        int index = item.ordinal() * STRIDE;
+        long now = now();
+        long current = state.get(index);
+        while (true) {
+            // a trade that read the clock before the last one was stored counts as happening with it
+            long at = Math.max(now, current & TIME_MASK);
+            long pressure = (long) decay(current, at) + delta;
+            pressure = Math.max(-maxPressure, Math.min(maxPressure, pressure));
+            long updated = pressure << TIME_BITS | at;
+            long witness = state.compareAndExchange(index, current, updated);
+            if (witness == current) {
+                return;
+            }
+            current = witness;
+        }
+    }
+
+    /**
+     * @return The pressure in a packed state, decayed from the time of its last trade to now.
+     */
+    private double decay(long packed, long now) {
+        long pressure = packed >> TIME_BITS;
+        if (pressure == 0) {
+            return 0;
+        }
+        long elapsed = Math.max(0, now - (packed & TIME_MASK));
+        return pressure * Math.exp(-Math.log(2) * elapsed / halfLifeMillis);
+    }
+
+    private double factorOf(double pressure) {
+        return Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, Math.exp(elasticity * pressure / ONE_TRADE)));
+    }
+
+    /**
+     * @return Milliseconds since the market was made.
+     */
+    private long now() {
+        return (clock.getAsLong() - start) / 1_000_000;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int trades = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        AtomicLong nanos = new AtomicLong();
+        long halfLifeNanos = (long) (DEFAULT_HALF_LIFE_SECONDS * 1e9);
+        boolean ok = true;
+
+        // decay: ten purchases, then one half-life, then a sale, then long enough to forget them all
+        Market market = new Market(DEFAULT_HALF_LIFE_SECONDS, DEFAULT_ELASTICITY, nanos::get);
+        for (int i = 0; i < 10; i++) {
+            market.bought(Item.WATER);
+        }
+        ok &= check("10 purchases", market.factor(Item.WATER), Math.exp(10 * DEFAULT_ELASTICITY));
+        ok &= check("untraded item", market.factor(Item.ROPE), 1.0);
+        nanos.addAndGet(halfLifeNanos);
+        ok &= check("one half-life", market.factor(Item.WATER), Math.exp(5 * DEFAULT_ELASTICITY));
+        market.sold(Item.WATER);
+        ok &= check("then a sale", market.factor(Item.WATER), Math.exp(4 * DEFAULT_ELASTICITY));
+        ok &= check("quote", market.quote()[Item.WATER.ordinal()], Math.exp(4 * DEFAULT_ELASTICITY));
+        nanos.addAndGet(100 * halfLifeNanos);
+        ok &= check("100 half-lives", market.factor(Item.WATER), 1.0);
+
+        // clamping, and no wind-up past the clamp: one trade back moves the price straight away
+        market = new Market(DEFAULT_HALF_LIFE_SECONDS, DEFAULT_ELASTICITY, nanos::get);
+        for (int i = 0; i < 1000; i++) {
+            market.bought(Item.ROPE);
+            market.sold(Item.MACHETE);
+        }
+        ok &= check("clamped up", market.factor(Item.ROPE), MAX_FACTOR);
+        ok &= check("clamped down", market.factor(Item.MACHETE), MIN_FACTOR);
+        market.sold(Item.ROPE);
+        market.bought(Item.MACHETE);
+        ok &= check("rope falls at once", market.factor(Item.ROPE) < MAX_FACTOR ? 1 : 0, 1);
+        ok &= check("machete rises at once", market.factor(Item.MACHETE) > MIN_FACTOR ? 1 : 0, 1);
+
+        // concurrent trades on a stopped clock: every compare-and-set retry must still count exactly once,
+        // and the net pressure stays well inside what a slot can hold
+        Market shared = new Market(DEFAULT_HALF_LIFE_SECONDS, 1e-6, nanos::get);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < trades; i++) {
+                    shared.bought(Item.HORSE);
+                    shared.bought(Item.BOAT);
+                    shared.sold(Item.BOAT);
+                    if (i >= 10) {
+                        shared.sold(Item.HORSE);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        ok &= check(threads + " threads buying", shared.factor(Item.HORSE), Math.exp(1e-6 * threads * Math.min(10, trades)));
+        ok &= check(threads + " threads buying and selling", shared.factor(Item.BOAT), 1.0);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(String name, double actual, double expected) {
+        boolean ok = Math.abs(actual - expected) <= 1e-12 * Math.max(1, Math.abs(expected));
+        System.out.printf("%s %s: %.15f (expected %.15f)%n", ok ? "ok  " : "FAIL", name, actual, expected);
+        return ok;
+    }
+}
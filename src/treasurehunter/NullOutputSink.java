@@ -0,0 +1,22 @@
+package treasurehunter;
+
+import java.awt.Color;
+
+/**
+ * An OutputSink that throws everything away, for benchmarks and bulk simulation.<p>
+ * It reports itself as discarding, so callers can skip building text that nobody will see.
+ */
+
+public final class NullOutputSink implements OutputSink {
+    public static final NullOutputSink INSTANCE = new NullOutputSink();
+
+    private NullOutputSink() {
+    }
+
+    public void print(String text, Color color) {
+    }
+
+    public boolean isDiscarding() {
+        return true;
+    }
+}
@@ -0,0 +1,482 @@
+package treasurehunter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the best chance of winning Treasure Hunter within a number of turns, as a lower bound that is exact below
+ * goldCap, and the move that achieves it, by treating the game as a Markov decision process and running value
+ * iteration over every reachable state.<p>
+ * A state is the hunter's gold, kit and number of treasures, plus the current town's terrain, whether it is tough,
+ * and whether the hunter already dug and hunted there. The town's treasure is not part of the state: it stays hidden
+ * until the hunter hunts for it, and it is drawn independently of everything else, so it can be drawn at that moment.
+ * Each menu choice is one turn, and every chance event uses the same probabilities as Town and Shop.
+ * After n iterations, value[s] is the best chance of winning from s with n turns left, and the best move
+ * for every number of turns left up to n is kept, since the best move changes as time runs out. Keeping a whole
+ * policy per turn would take hundreds of megabytes, so each state keeps only the turns at which its best move
+ * changes, in one shared run table.<p>
+ * Values live in flat double arrays indexed by an encoded state with gold varying fastest, and each iteration is split across a fork-join
+ * pool. Gold above the cap counts as the cap. That can only understate the chance of winning, and the cap is far
+ * above the 60 gold the whole shop costs.<p>
+ * Usage: OptimalPolicySolver [turns] [goldCap] [--no-free-sword]
+ */
+
+public class OptimalPolicySolver {
+    // constants
+    public static final int EXPLORE = 0;
+    public static final int BUY = 1;   // BUY + item ordinal
+    public static final int SELL = BUY + 8;   // SELL + item ordinal
+    public static final int MOVE = SELL + 8;
+    public static final int LOOK_FOR_TROUBLE = MOVE + 1;
+    public static final int DIG = LOOK_FOR_TROUBLE + 1;
+    public static final int HUNT = DIG + 1;
+    private static final Item[] ITEMS = Item.values();
+    private static final int KITS = 1 << ITEMS.length;
+    private static final int TREASURE_COUNTS = 3;   // 0, 1 or 2 found; the third one wins
+    // the terrains in the order Town picks them, each with chance 1/6
+    private static final Item[] TERRAINS = {Item.BOOTS, Item.ROPE, Item.BOAT, Item.HORSE, Item.WATER, Item.MACHETE};
+    private static final int TOWN_STATES = TERRAINS.length * 2 * 2 * 2;
+    private static final int MAX_TURNS = Character.MAX_VALUE;   // runs record their first turn in a char
+
+    // instance variables
+    private String modeName;
+    private boolean easy;
+    private double toughness;
+    private int startingGold;
+    private boolean freeSword;
+    private int goldCap;
+    // distances between neighbouring states in the flat arrays; gold varies fastest so gold changes stay in cache
+    private int huntedStride;
+    private int dugStride;
+    private int townStride;
+    private int treasureStride;
+    private int kitStride;
+    private int[] buyPrice;
+    private int[] sellPrice;
+    private double[] value;
+    private double[] next;
+    private double[] arrival;
+    private byte[] policy;
+    private byte[] lastPolicy;
+    // state s's best moves are runs runStart[s] to runStart[s + 1] - 1, each from runTurn[i] turns left on
+    private int[] runStart;
+    private char[] runTurn;
+    private byte[] runAction;
+    // changes of best move not yet merged into the runs, in turn order: state, new move and turns left
+    private int[] changedStates;
+    private byte[] changedActions;
+    private char[] changedTurns;
+    private int changes;
+    private int turns;
+    private double lastChange;
+
+    /**
+     * @param mode The difficulty as typed in the game: "e", "n", "h" or "s".
+     * @param goldCap The most gold the model tracks.
+     * @param allowFreeSword Whether asking the shop for an item it doesn't stock may hand out the sword, as the game
+     *                       does in every mode. In samurai mode the sword is always available.
+     */
+    public OptimalPolicySolver(String mode, int goldCap, boolean allowFreeSword) {
+        boolean hardMode = mode.equals("h");
+        boolean easyMode = mode.equals("e");
+        boolean samurai = mode.equals("s");
+        modeName = easyMode ? "easy" : hardMode ? "hard" : samurai ? "samurai" : "normal";
+        easy = easyMode;
+        toughness = TreasureHunter.toughness(hardMode, easyMode);
+        startingGold = easyMode ? 40 : 20; // as in TreasureHunter.welcomePlayer()
+        freeSword = allowFreeSword || samurai;
+        this.goldCap = goldCap;
+        huntedStride = goldCap + 1;
+        dugStride = 2 * huntedStride;
+        townStride = 8 * huntedStride;
+        treasureStride = TOWN_STATES * huntedStride;
+        kitStride = TREASURE_COUNTS * treasureStride;
+
+        Shop shop = new Shop(TreasureHunter.markdown(hardMode, easyMode), samurai, null, null);
+        buyPrice = new int[ITEMS.length];
+        sellPrice = new int[ITEMS.length];
+        for (Item item : ITEMS) {
+            buyPrice[item.ordinal()] = shop.checkMarketPrice(item, true);
+            sellPrice[item.ordinal()] = shop.checkMarketPrice(item, false);
+        }
+
+        int states = KITS * kitStride;
+        value = new double[states];
+        next = new double[states];
+        arrival = new double[KITS * TREASURE_COUNTS * (goldCap + 1)];
+        policy = new byte[states];
+        lastPolicy = new byte[states];
+        runStart = new int[states + 1];
+        runTurn = new char[0];
+        runAction = new byte[0];
+        changedStates = new int[1024];
+        changedActions = new byte[1024];
+        changedTurns = new char[1024];
+        turns = 0;
+    }
+
+    /**
+     * Runs value iteration until the values are for the given number of turns left.
+     *
+     * @param totalTurns The number of turns the hunter has.
+     * @param pool The pool the work is split across.
+     */
+    public void solve(int totalTurns, ForkJoinPool pool) {
+        if (totalTurns > MAX_TURNS) {
+            throw new IllegalArgumentException("Can't solve more than " + MAX_TURNS + " turns");
+        }
+        int blocks = KITS * TREASURE_COUNTS;
+        while (turns < totalTurns) {
+            double[] swap = next;
+            next = value;
+            value = swap;
+            byte[] swapPolicy = lastPolicy;
+            lastPolicy = policy;
+            policy = swapPolicy;
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(this::computeArrival)).join();
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(this::computeBlock)).join();
+            turns++;
+            double change = 0;
+            for (int i = 0; i < value.length; i++) {
+                change = Math.max(change, value[i] - next[i]);
+                // every state's first move counts as a change
+                if (policy[i] != lastPolicy[i] || turns == 1) {
+                    addChange(i, policy[i]);
+                }
+            }
+            lastChange = change;
+            if (changes >= value.length) {
+                mergeChanges();
+            }
+        }
+        mergeChanges();
+    }
+
+    /**
+     * @return The best chance of winning from the start of a game with the solved number of turns, as a lower bound
+     * that is exact below goldCap.
+     */
+    public double startingWinProbability() {
+        double total = 0;
+        for (int terrain = 0; terrain < TERRAINS.length; terrain++) {
+            total += toughnessChance(true) * value[index(startingGold, 0, 0, terrain, true, false, false)];
+            total += toughnessChance(false) * value[index(startingGold, 0, 0, terrain, false, false, false)];
+        }
+        return total / TERRAINS.length;
+    }
+
+    /**
+     * @return The best chance of winning from the given state with the solved number of turns left, as a lower bound
+     * that is exact below goldCap.
+     */
+    public double winProbability(int gold, int kit, int treasures, Item terrain, boolean tough, boolean dug,
+                                 boolean hunted) {
+        return value[index(Math.min(gold, goldCap), kit, treasures, terrainIndex(terrain), tough, dug, hunted)];
+    }
+
+    /**
+     * @param turnsLeft The number of turns left, from 1 up to the solved number of turns.
+     * @return The best move from the given state, as one of the action codes.
+     */
+    public int bestAction(int turnsLeft, int gold, int kit, int treasures, Item terrain, boolean tough, boolean dug,
+                          boolean hunted) {
+        if (turnsLeft < 1 || turnsLeft > turns) {
+            throw new IllegalArgumentException("Only 1 to " + turns + " turns left have been solved");
+        }
+        int state = index(Math.min(gold, goldCap), kit, treasures, terrainIndex(terrain), tough, dug, hunted);
+        // the last run that starts at or before turnsLeft; every state has a run from 1 turn left
+        int low = runStart[state];
+        int high = runStart[state + 1] - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (runTurn[middle] <= turnsLeft) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return runAction[low];
+    }
+
+    /**
+     * @return The game command that carries out an action, e.g. "b rope" or "m".
+     */
+    public static String describeAction(int action) {
+        if (action >= BUY && action < SELL) {
+            return "b " + ITEMS[action - BUY];
+        } else if (action >= SELL && action < MOVE) {
+            return "s " + ITEMS[action - SELL];
+        } else if (action == MOVE) {
+            return "m";
+        } else if (action == LOOK_FOR_TROUBLE) {
+            return "l";
+        } else if (action == DIG) {
+            return "d";
+        } else if (action == HUNT) {
+            return "h";
+        }
+        return "e";
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return The largest amount any state's value grew by in the last iteration.
+     */
+    public double getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Notes that a state's best move with the current number of turns left differs from the one before.
+     */
+    private void addChange(int state, byte action) {
+        if (changes == changedStates.length) {
+            int length = changes * 2;
+            changedStates = Arrays.copyOf(changedStates, length);
+            changedActions = Arrays.copyOf(changedActions, length);
+            changedTurns = Arrays.copyOf(changedTurns, length);
+        }
+        changedStates[changes] = state;
+        changedActions[changes] = action;
+        changedTurns[changes] = (char) turns;
+        changes++;
+    }
+
+    /**
+     * Appends the noted changes to each state's runs. Changes are noted in turn order, so each state's runs stay
+     * sorted by turn.
+     */
+    private void mergeChanges() {
+        if (changes == 0) {
+            return;
+        }
+        int states = value.length;
+        int[] start = new int[states + 1];
+        for (int i = 0; i < changes; i++) {
+            start[changedStates[i] + 1]++;
+        }
+        for (int s = 0; s < states; s++) {
+            start[s + 1] += start[s] + runStart[s + 1] - runStart[s];
+        }
+        char[] mergedTurn = new char[start[states]];
+        byte[] mergedAction = new byte[start[states]];
+        int[] end = new int[states];
+        for (int s = 0; s < states; s++) {
+            int kept = runStart[s + 1] - runStart[s];
+            System.arraycopy(runTurn, runStart[s], mergedTurn, start[s], kept);
+            System.arraycopy(runAction, runStart[s], mergedAction, start[s], kept);
+            end[s] = start[s] + kept;
+        }
+        for (int i = 0; i < changes; i++) {
+            int at = end[changedStates[i]]++;
+            mergedTurn[at] = changedTurns[i];
+            mergedAction[at] = changedActions[i];
+        }
+        runStart = start;
+        runTurn = mergedTurn;
+        runAction = mergedAction;
+        changes = 0;
+    }
+
+    /**
+     * Averages the value of arriving in a brand new town over its terrain and toughness, for every amount of gold.
+     */
+    private void computeArrival(int kitTreasures) {
+        int base = kitTreasures * treasureStride;
+        for (int gold = 0; gold <= goldCap; gold++) {
+            double total = 0;
+            for (int terrain = 0; terrain < TERRAINS.length; terrain++) {
+                total += toughnessChance(true) * next[base + terrain * townStride + 4 * huntedStride + gold];
+                total += toughnessChance(false) * next[base + terrain * townStride + gold];
+            }
+            arrival[kitTreasures * (goldCap + 1) + gold] = total / TERRAINS.length;
+        }
+    }
+
+    /**
+     * Computes the new values and best moves of every state with the given kit and number of treasures.
+     */
+    private void computeBlock(int kitTreasures) {
+        int kit = kitTreasures / TREASURE_COUNTS;
+        int treasures = kitTreasures % TREASURE_COUNTS;
+        double[] rowSums = new double[goldCap + 2];
+        double[] dugRowSums = new double[goldCap + 2];
+        for (int terrain = 0; terrain < TERRAINS.length; terrain++) {
+            for (int town = 0; town < 8; town++) {
+                boolean dug = (town & 2) != 0;
+                int row = index(0, kit, treasures, terrain, (town & 4) != 0, dug, (town & 1) != 0);
+                sumRow(row, rowSums);
+                if (!dug) {
+                    sumRow(row + dugStride, dugRowSums);
+                }
+                for (int gold = 0; gold <= goldCap; gold++) {
+                    computeState(gold, kit, treasures, terrain, (town & 4) != 0, dug, (town & 1) != 0,
+                            rowSums, dugRowSums);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills sums[i] with the total of next[] over gold 0 to i - 1 in one row,
+     * so the many gold changes a fight or a dig can bring are averaged in constant time.
+     */
+    private void sumRow(int row, double[] sums) {
+        sums[0] = 0;
+        for (int gold = 0; gold <= goldCap; gold++) {
+            sums[gold + 1] = sums[gold] + next[row + gold];
+        }
+    }
+
+    /**
+     * @return The total of next[] over gold + 1 to gold + count in a row, counting gold above the cap as the cap.
+     */
+    private double sumAbove(int row, double[] sums, int gold, int count) {
+        int top = Math.min(goldCap, gold + count);
+        return sums[top + 1] - sums[gold + 1] + (gold + count - top) * next[row + goldCap];
+    }
+
+    private void computeState(int gold, int kit, int treasures, int terrain, boolean tough, boolean dug,
+                              boolean hunted, double[] rowSums, double[] dugRowSums) {
+        int state = index(gold, kit, treasures, terrain, tough, dug, hunted);
+        int row = state - gold;
+        boolean sword = (kit & Item.SWORD.mask()) != 0;
+        double best = next[state];
+        int bestAction = EXPLORE;
+
+        // buying
+        for (Item item : ITEMS) {
+            int mask = item.mask();
+            if ((kit & mask) != 0) {
+                continue;
+            }
+            double q;
+            if (item == Item.SWORD) {
+                if (!freeSword) {
+                    continue;
+                }
+                q = next[state + mask * kitStride];
+            } else if (sword) {
+                q = next[state + mask * kitStride];
+            } else if (gold >= buyPrice[item.ordinal()]) {
+                q = next[state + mask * kitStride - buyPrice[item.ordinal()]];
+            } else {
+                continue;
+            }
+            if (q > best) {
+                best = q;
+                bestAction = BUY + item.ordinal();
+            }
+        }
+
+        // selling
+        for (Item item : ITEMS) {
+            int price = sellPrice[item.ordinal()];
+            if ((kit & item.mask()) == 0 || price <= 0) {
+                continue;
+            }
+            double q = next[state - item.mask() * kitStride + Math.min(goldCap, gold + price) - gold];
+            if (q > best) {
+                best = q;
+                bestAction = SELL + item.ordinal();
+            }
+        }
+
+        // moving on, which may break the item used to cross
+        int crossing = TERRAINS[terrain].mask();
+        if ((kit & crossing) != 0) {
+            int kept = (kit * TREASURE_COUNTS + treasures) * (goldCap + 1) + gold;
+            double q = arrival[kept];
+            if (!easy) {
+                q = 0.5 * q + 0.5 * arrival[kept - crossing * TREASURE_COUNTS * (goldCap + 1)];
+            }
+            if (q > best) {
+                best = q;
+                bestAction = MOVE;
+            }
+        }
+
+        // looking for trouble
+        double fightChance = tough ? 0.66 : 0.33;
+        double winFight = sumAbove(row, rowSums, gold, 10) / 10;
+        // losing more gold than the hunter has loses the game, which is worth nothing
+        double loseFight = (rowSums[gold] - rowSums[Math.max(0, gold - 10)]) / 10;
+        double trouble;
+        if (sword) {
+            trouble = (1 - fightChance) * next[state] + fightChance * winFight;
+        } else {
+            trouble = (1 - fightChance) * next[state]
+                    + fightChance * ((1 - fightChance) * winFight + fightChance * loseFight);
+        }
+        if (trouble > best) {
+            best = trouble;
+            bestAction = LOOK_FOR_TROUBLE;
+        }
+
+        // digging
+        if ((kit & Item.SHOVEL.mask()) != 0 && !dug) {
+            int afterDig = state + dugStride;
+            double found = sumAbove(row + dugStride, dugRowSums, gold, 20);
+            double q = 0.5 * found / 20 + 0.5 * next[afterDig];
+            if (q > best) {
+                best = q;
+                bestAction = DIG;
+            }
+        }
+
+        // hunting for treasure: each of the four finds is equally likely and dust is worthless
+        if (!hunted) {
+            int afterHunt = state + huntedStride;
+            double newTreasure = (TREASURE_COUNTS - treasures) / 4.0;
+            double afterNew = treasures + 1 == TREASURE_COUNTS ? 1.0 : next[afterHunt + treasureStride];
+            double q = newTreasure * afterNew + (1 - newTreasure) * next[afterHunt];
+            if (q > best) {
+                best = q;
+                bestAction = HUNT;
+            }
+        }
+
+        value[state] = best;
+        policy[state] = (byte) bestAction;
+    }
+
+    private double toughnessChance(boolean tough) {
+        return tough ? toughness : 1 - toughness;
+    }
+
+    private int index(int gold, int kit, int treasures, int terrain, boolean tough, boolean dug, boolean hunted) {
+        return kit * kitStride + treasures * treasureStride + terrain * townStride
+                + (tough ? 4 * huntedStride : 0) + (dug ? dugStride : 0) + (hunted ? huntedStride : 0) + gold;
+    }
+
+    private static int terrainIndex(Item neededItem) {
+        for (int i = 0; i < TERRAINS.length; i++) {
+            if (TERRAINS[i] == neededItem) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No terrain needs a " + neededItem);
+    }
+
+    public static void main(String[] args) {
+        int totalTurns = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int goldCap = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        boolean allowFreeSword = !(args.length > 2 && args[2].equals("--no-free-sword"));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (String mode : new String[] {"e", "n", "h", "s"}) {
+            long start = System.nanoTime();
+            OptimalPolicySolver solver = new OptimalPolicySolver(mode, goldCap, allowFreeSword);
+            solver.solve(totalTurns, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-7s win within %d turns: at least %.6f, exact below %d gold"
+                            + "  (last iteration changed values by up to %.2e, %.2f s)%n",
+                    solver.modeName, totalTurns, solver.startingWinProbability(), goldCap, solver.getLastChange(),
+                    seconds);
+        }
+    }
+}
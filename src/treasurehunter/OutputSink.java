@@ -0,0 +1,32 @@
+package treasurehunter;
+
+import java.awt.Color;
+
+/**
+ * An OutputSink receives all of the text the game shows to the player.<p>
+ * The Swing OutputWindow, the AnsiTerminalSink and the NullOutputSink are the available sinks,
+ * so the game can run in a window, on a headless server's terminal, or with its output thrown away.
+ */
+
+public interface OutputSink {
+    /**
+     * Shows a piece of text to the player.
+     *
+     * @param text The text to show.
+     * @param color The color the text should be shown in.
+     */
+    void print(String text, Color color);
+
+    /**
+     * Removes all previously shown text. Sinks with nothing to clear can ignore this.
+     */
+    default void clear() {
+    }
+
+    /**
+     * @return true if everything printed is thrown away, so callers may skip building text.
+     */
+    default boolean isDiscarding() {
+        return false;
+    }
+}
@@ -0,0 +1,223 @@
+package treasurehunter;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JFrame;
+import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import javax.swing.text.StyleContext;
+import javax.swing.text.StyledDocument;
+
+/**
+ * A Swing window that shows the game's text.<p>
+ * print() and clear() are called from the game's thread and only add an event to a bounded, lock-free
+ * RenderQueue, so the game never waits for Swing. Once per frame the queue is drained on the event dispatch thread,
+ * neighbouring runs of the same color are joined into one insert, and the document is trimmed back to the
+ * scrollback limit. If the game outruns the display, the queue coalesces up to a scrollback's worth of its text and
+ * then makes the game wait for the display; flush() waits until everything is queued, and flushBefore() does it
+ * before every line the game reads.<p>
+ * Text with ANSI color codes, such as terrain names and brawl messages, is split into colored runs by AnsiText
+ * instead of being shown raw. The game prints the same few colored strings over and over, so parsed text is kept
+ * in a small LRU cache, and every run is inserted with a shared AttributeSet built once per color.
+ * Text without an escape character skips all of this.
+ */
+
+public class OutputWindow implements OutputSink {
+    // constants
+    public static final int DEFAULT_SCROLLBACK = 200_000;
+    private static final int FRAME_MILLIS = 16;
+    private static final int FONT_SIZE = 25;
+    private static final int PARSED_CACHE_SIZE = 256;
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // instance variables
+    private StyledDocument doc;
+    private JTextPane textPane;
+    private int scrollback;
+    private RenderQueue pending;
+    private Renderer renderer;
+    private StyleContext styles;
+    private AttributeSet baseStyle;
+    private Map<Color, AttributeSet> colorStyles; // only touched on the event dispatch thread
+    private LinkedHashMap<String, AnsiText> parsed; // only touched on the event dispatch thread
+    private StringBuilder batch; // only touched on the event dispatch thread
+    private Color batchColor; // only touched on the event dispatch thread
+
+    public OutputWindow() {
+        this(DEFAULT_SCROLLBACK);
+    }
+
+    /**
+     * @param scrollback The most characters the window keeps; older text is dropped from the top.
+     */
+    public OutputWindow(int scrollback) {
+        this.scrollback = scrollback;
+        pending = new RenderQueue(QUEUE_CAPACITY, scrollback);
+        renderer = new Renderer();
+        styles = new StyleContext();
+        baseStyle = styles.addAttribute(SimpleAttributeSet.EMPTY, StyleConstants.FontSize, FONT_SIZE);
+        colorStyles = new HashMap<>();
+        parsed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AnsiText> eldest) {
+                return size() > PARSED_CACHE_SIZE;
+            }
+        };
+        batch = new StringBuilder();
+        batchColor = null;
+        try {
+            if (SwingUtilities.isEventDispatchThread()) {
+                createWindow();
+            } else {
+                SwingUtilities.invokeAndWait(this::createWindow);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the output window", e);
+        }
+    }
+
+    private void createWindow() {
+        JFrame frame = new JFrame("Test");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // causes program to end when window is X'd out
+        frame.setSize(500, 400); // window size
+        frame.setLocation(300, 50); // where on screen window appears
+        textPane = new JTextPane(); // panel that can handle custom text
+        textPane.setEditable(false); // prevents user from typing into window
+        doc = textPane.getStyledDocument(); // call getter method for panel's style doc
+        frame.add(textPane); // add the panel to the frame
+        frame.setVisible(true); // display the frame on screen
+        new Timer(FRAME_MILLIS, e -> drain()).start(); // drain queued text once per frame
+    }
+
+    public void print(String text, Color color) {
+        pending.offer(String.valueOf(text), color);
+    }
+
+    public void clear() {
+        pending.offerClear();
+    }
+
+    /**
+     * Waits until everything printed so far is queued for the display. Call it from the game's thread.
+     */
+    public void flush() {
+        pending.flush();
+    }
+
+    /**
+     * @param input Where the game reads its commands from.
+     * @return A source that flushes this window before each line it reads, so the player always sees the
+     *         whole prompt.
+     */
+    public CommandSource flushBefore(CommandSource input) {
+        return () -> {
+            flush();
+            return input.nextLine();
+        };
+    }
+
+    /**
+     * @return The render queue, for its depth, its counts of published, coalesced and dropped events, and its stalls.
+     */
+    public RenderQueue getRenderQueue() {
+        return pending;
+    }
+
+    /**
+     * Moves everything queued since the last frame into the document. Runs on the event dispatch thread.
+     */
+    private void drain() {
+        if (pending.drain(renderer) == 0) {
+            return;
+        }
+        if (batchColor != null) {
+            insert();
+        }
+        trimToScrollback();
+    }
+
+    /**
+     * Adds text to the batch, first inserting the batch if it is in another color.
+     */
+    private void append(String text, Color color) {
+        if (batchColor != null && !batchColor.equals(color)) {
+            insert();
+        }
+        batchColor = color;
+        batch.append(text);
+    }
+
+    private void insert() {
+        try {
+            doc.insertString(doc.getLength(), batch.toString(), styleFor(batchColor)); // insert text at end the panel
+        } catch (BadLocationException e) {
+            // appending at the current length is always a valid location
+        }
+        batch.setLength(0);
+        batchColor = null;
+    }
+
+    /**
+     * @return The text's colored runs, parsed the first time the text is seen and then taken from the cache.
+     */
+    private AnsiText parse(String text) {
+        AnsiText styled = parsed.get(text);
+        if (styled == null) {
+            styled = AnsiText.parse(text);
+            parsed.put(text, styled);
+        }
+        return styled;
+    }
+
+    private void trimToScrollback() {
+        int excess = doc.getLength() - scrollback;
+        if (excess > 0) {
+            try {
+                doc.remove(0, excess);
+            } catch (BadLocationException e) {
+                // the excess is always within the document
+            }
+        }
+    }
+
+    /**
+     * @return The shared, immutable style for text in the given color.
+     */
+    private AttributeSet styleFor(Color color) {
+        AttributeSet style = colorStyles.get(color);
+        if (style == null) {
+            style = styles.addAttribute(baseStyle, StyleConstants.Foreground, color);
+            colorStyles.put(color, style);
+        }
+        return style;
+    }
+
+    /**
+     * Adds each drained event to the document. Only used on the event dispatch thread.
+     */
+    private final class Renderer implements RenderQueue.Handler {
+        public void text(String text, Color color) {
+            if (text.indexOf('\033') < 0) {
+                append(text, color);
+                return;
+            }
+            AnsiText styled = parse(text);
+            for (int i = 0; i < styled.runCount(); i++) {
+                append(styled.getText(i), styled.getColor(i, color));
+            }
+        }
+
+        public void clear() {
+            batch.setLength(0);
+            batchColor = null;
+            textPane.setText("");  // set panel's text to empty string to "reset it"
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package treasurehunter;
+
+import java.util.SplittableRandom;
+
+/**
+ * A simulated player that answers every prompt with a random but sensible command.<p>
+ * Shop visits are followed by an item name and a "y", so the shop paths are exercised as well as the main menu.
+ * After a fixed number of menu choices the player gives up and exits, so every simulated game ends.
+ */
+
+public class RandomPlayer implements CommandSource {
+    // constants
+    private static final String[] MOVES = {"b", "s", "e", "m", "m", "l", "d", "h", "h"};
+    private static final String[] ITEMS = {"water", "rope", "machete", "horse", "boat", "boots", "shovel"};
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private int turns;
+    private int linesRead;
+    private String[] pending;
+    private int pendingCount;
+    private SplittableRandom random;
+
+    /**
+     * @param mode The difficulty the player picks: "e", "n", "h" or "s".
+     * @param maxTurns The number of menu choices after which the player exits.
+     * @param random The player's own random number source.
+     */
+    public RandomPlayer(String mode, int maxTurns, SplittableRandom random) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.random = random;
+        turns = 0;
+        linesRead = 0;
+        pending = new String[2];
+        pendingCount = 0;
+    }
+
+    public String nextLine() {
+        linesRead++;
+        if (linesRead == 1) {
+            return "sim";
+        }
+        if (linesRead == 2) {
+            return mode;
+        }
+        if (pendingCount > 0) {
+            pendingCount--;
+            return pending[pendingCount];
+        }
+        if (turns >= maxTurns) {
+            return "x";
+        }
+        turns++;
+        String move = MOVES[random.nextInt(MOVES.length)];
+        if (move.equals("b") || move.equals("s")) {
+            // answers are handed out last-in first-out
+            pending[1] = ITEMS[random.nextInt(ITEMS.length)];
+            pending[0] = "y";
+            pendingCount = 2;
+        }
+        return move;
+    }
+}
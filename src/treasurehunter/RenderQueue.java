@@ -0,0 +1,305 @@
+package treasurehunter;
+
+import java.awt.Color;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free queue of render events from one producer, the game's thread, to one consumer,
+ * e.g. the Swing event dispatch thread.<p>
+ * Events live in a ring of preallocated slots. The producer publishes a slot by advancing tail and the consumer
+ * frees it by advancing head, each with an ordered write, so neither side ever takes a lock.
+ * Each side keeps its own copy of its index and only rereads the other side's index when it seems to have run out.<p>
+ * When the ring is full, later events are first coalesced into an overflow the producer owns: text next to text of
+ * the same color is joined into one event and a clear discards everything before it. The overflow is a fixed set of
+ * OVERFLOW_RUNS runs whose buffers are reused, so it allocates nothing once warmed up. When the overflow has no run
+ * left for a new color, or holds maxOverflowChars, the producer stalls: it spins briefly and then parks until the
+ * consumer has made room for the whole overflow, so the game is slowed to the display's pace instead of losing
+ * text. The overflow moves into the ring as space frees up, and flush() waits until all of it is in, which the game
+ * does before it waits for its player.<p>
+ * The queue counts published, coalesced and dropped events, producer stalls, and the deepest the ring has been.
+ */
+
+public class RenderQueue {
+    // constants
+    private static final long FULL_WAIT_NANOS = 1_000_000;
+    private static final int OVERFLOW_RUNS = 64;
+    private static final int SPINS = 128;
+
+    // instance variables
+    private final String[] texts;   // null marks a clear
+    private final Color[] colors;
+    private final int mask;
+    private final int maxOverflowChars;
+    private final AtomicLong head = new AtomicLong();   // the next slot the consumer reads
+    private final AtomicLong tail = new AtomicLong();   // the next slot the producer writes
+    // only touched by the producer
+    private long producerTail;
+    private long cachedHead;
+    private final Run[] overflow;   // runs overflowFirst onwards, in order, reused once moved into the ring
+    private int overflowFirst;
+    private int overflowCount;
+    private boolean overflowClear;
+    private int overflowChars;
+    // only touched by the consumer
+    private long consumerHead;
+    private long cachedTail;
+    // written only by the producer, read by anyone
+    private volatile long published;
+    private volatile long coalesced;
+    private volatile long dropped;
+    private volatile long stalls;
+    private volatile long maxDepth;
+
+    /**
+     * Receives the events the consumer drains.
+     */
+    public interface Handler {
+        void text(String text, Color color);
+
+        void clear();
+    }
+
+    /**
+     * @param capacity The number of events the ring holds, rounded up to a power of two.
+     * @param maxOverflowChars The most characters kept in the overflow before the producer stalls.
+     */
+    public RenderQueue(int capacity, int maxOverflowChars) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        texts = new String[size];
+        colors = new Color[size];
+        mask = size - 1;
+        this.maxOverflowChars = maxOverflowChars;
+        overflow = new Run[OVERFLOW_RUNS];
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new Run();
+        }
+    }
+
+    /**
+     * Queues text to be shown, stalling while both the ring and the overflow are full.
+     * Only the producer thread may call this.
+     *
+     * @param text The text.
+     * @param color The color to show it in.
+     */
+    public void offer(String text, Color color) {
+        if ((overflowCount == 0 && !overflowClear) || moveOverflow()) {
+            if (publish(text, color)) {
+                return;
+            }
+        }
+        while (!addToOverflow(text, color)) {
+            stall();
+        }
+    }
+
+    /**
+     * Queues a clear. Only the producer thread may call this.
+     */
+    public void offerClear() {
+        if ((overflowCount == 0 && !overflowClear) || moveOverflow()) {
+            if (publish(null, null)) {
+                return;
+            }
+        }
+        // nothing waiting in the overflow would survive the clear
+        dropped += overflowCount;
+        if (overflowClear) {
+            coalesced++;
+        }
+        for (; overflowCount > 0; overflowCount--) {
+            freeFirst();
+        }
+        overflowChars = 0;
+        overflowClear = true;
+    }
+
+    /**
+     * Waits until everything in the overflow is in the ring, so the consumer will show all of it.
+     * Only the producer thread may call this.
+     */
+    public void flush() {
+        while (!moveOverflow()) {
+            LockSupport.parkNanos(FULL_WAIT_NANOS);
+        }
+    }
+
+    /**
+     * Hands every event published so far to the handler, in order. Only the consumer thread may call this.
+     *
+     * @param handler What to do with each event.
+     * @return The number of events drained.
+     */
+    public int drain(Handler handler) {
+        if (consumerHead == cachedTail) {
+            cachedTail = tail.get();
+        }
+        long start = consumerHead;
+        while (consumerHead < cachedTail) {
+            int slot = (int) consumerHead & mask;
+            String text = texts[slot];
+            Color color = colors[slot];
+            texts[slot] = null;
+            colors[slot] = null;
+            consumerHead++;
+            if (text == null) {
+                handler.clear();
+            } else {
+                handler.text(text, color);
+            }
+        }
+        head.lazySet(consumerHead);
+        return (int) (consumerHead - start);
+    }
+
+    /**
+     * @return The number of events in the ring that the consumer has not drained yet.
+     */
+    public int getDepth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * @return The number of events joined onto an earlier event while the ring was full.
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return The number of events thrown away from the overflow by a later clear.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return The number of times the producer had to wait for the consumer to make room.
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    public String infoString() {
+        return "render queue: depth " + getDepth() + " of " + texts.length + " (max " + maxDepth + "), "
+                + published + " published, " + coalesced + " coalesced, " + dropped + " dropped, "
+                + stalls + " stalls";
+    }
+
+    /**
+     * Moves as much of the overflow into the ring as fits.
+     *
+     * @return true if the overflow is now empty.
+     */
+    private boolean moveOverflow() {
+        if (overflowClear) {
+            if (!publish(null, null)) {
+                return false;
+            }
+            overflowClear = false;
+        }
+        while (overflowCount > 0) {
+            Run run = overflow[overflowFirst];
+            if (!publish(run.text.toString(), run.color)) {
+                return false;
+            }
+            overflowChars -= run.text.length();
+            freeFirst();
+            overflowCount--;
+        }
+        return true;
+    }
+
+    /**
+     * Empties the first overflow run for reuse and moves past it.
+     */
+    private void freeFirst() {
+        Run run = overflow[overflowFirst];
+        run.text.setLength(0);
+        run.color = null;
+        overflowFirst = (overflowFirst + 1) % overflow.length;
+    }
+
+    /**
+     * Joins text onto the last overflow run of its color, or starts a new run.
+     *
+     * @return false if the overflow is full; text is always taken when the overflow is empty.
+     */
+    private boolean addToOverflow(String text, Color color) {
+        if (overflowCount > 0 && overflowChars + text.length() > maxOverflowChars) {
+            return false;
+        }
+        Run last = overflowCount == 0 ? null : overflow[(overflowFirst + overflowCount - 1) % overflow.length];
+        if (last != null && Objects.equals(last.color, color)) {
+            last.text.append(text);
+            coalesced++;
+        } else if (overflowCount < overflow.length) {
+            Run run = overflow[(overflowFirst + overflowCount) % overflow.length];
+            run.text.append(text);
+            run.color = color;
+            overflowCount++;
+        } else {
+            return false;
+        }
+        overflowChars += text.length();
+        return true;
+    }
+
+    /**
+     * Waits until the consumer has taken enough events for the whole overflow to move into the ring.
+     */
+    private void stall() {
+        stalls++;
+        int spins = 0;
+        while (!moveOverflow()) {
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(FULL_WAIT_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes an event into the next slot and publishes it, if the ring has room.
+     */
+    private boolean publish(String text, Color color) {
+        if (producerTail - cachedHead == texts.length) {
+            cachedHead = head.get();
+            if (producerTail - cachedHead == texts.length) {
+                return false;
+            }
+        }
+        int slot = (int) producerTail & mask;
+        texts[slot] = text;
+        colors[slot] = color;
+        producerTail++;
+        tail.lazySet(producerTail);
+        published++;
+        long depth = producerTail - cachedHead;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        return true;
+    }
+
+    /**
+     * Overflow text of one color. Its buffer is kept when the run is moved into the ring.
+     */
+    private static final class Run {
+        // instance variables
+        private final StringBuilder text = new StringBuilder();
+        private Color color;
+    }
+}
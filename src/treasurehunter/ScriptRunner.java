@@ -0,0 +1,90 @@
+package treasurehunter;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Plays scripted sessions through the real game, one game per script, with no prompting between commands.<p>
+ * A script is a list of words, each one a line of input: the hunter's name, the difficulty, then menu and shop
+ * answers, e.g. "bob n b rope y m d h". Once a script runs out the hunter exits.<p>
+ * Usage: ScriptRunner [-s seed] [-q] [-e script] [file | -]...<p>
+ * -s seeds every game, -q discards the games' output and only prints one summary line per script,
+ * -e runs a script given on the command line and - reads a script from standard input.
+ * Scripts are read a word at a time as the game asks for input, so a script of any length runs in constant memory.
+ */
+
+public class ScriptRunner {
+    // constants
+    private static final WritableByteChannel STDOUT = new FileOutputStream(FileDescriptor.out).getChannel();
+
+    // instance variables
+    private long seed;
+    private boolean quiet;
+
+    /**
+     * @param seed The seed each game's random number source starts from.
+     * @param quiet Whether the games' own output is discarded.
+     */
+    public ScriptRunner(long seed, boolean quiet) {
+        this.seed = seed;
+        this.quiet = quiet;
+    }
+
+    /**
+     * Plays one script to the end.
+     *
+     * @param input The script, read a word at a time as the game asks for input.
+     * @return A one-line summary of how the game ended.
+     */
+    public String run(LineReader input) {
+        // nobody is waiting on a prompt, so the output is only written when the buffer fills or the game ends
+        AnsiTerminalSink terminal = quiet ? null : new AnsiTerminalSink(STDOUT, false);
+        OutputSink output = quiet ? NullOutputSink.INSTANCE : terminal;
+        TreasureHunter game = new TreasureHunter(input, output, new SplittableRandom(seed));
+        game.play();
+        if (terminal != null) {
+            terminal.flush();
+        }
+        Hunter hunter = game.getHunter();
+        String outcome = hunter.win ? "won" : hunter.lose ? "lost" : "exited";
+        return String.format("%s after %d turns with %d gold, %d commands read",
+                outcome, game.getTurns(), hunter.gold, input.getLinesRead());
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = System.nanoTime();
+        boolean quiet = false;
+        int first = 0;
+        while (first < args.length && args[first].startsWith("-") && !args[first].equals("-")) {
+            if (args[first].equals("-s")) {
+                seed = Long.parseLong(args[++first]);
+            } else if (args[first].equals("-q")) {
+                quiet = true;
+            } else if (args[first].equals("-e")) {
+                break;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[first]);
+            }
+            first++;
+        }
+
+        ScriptRunner runner = new ScriptRunner(seed, quiet);
+        for (int i = first; i < args.length; i++) {
+            String name = args[i];
+            if (name.equals("-e")) {
+                System.out.println("script: " + runner.run(LineReader.of(args[++i], true)));
+            } else if (name.equals("-")) {
+                System.out.println("stdin: " + runner.run(LineReader.standardInput(true)));
+            } else {
+                try (FileChannel file = FileChannel.open(Path.of(name))) {
+                    System.out.println(name + ": " + runner.run(new LineReader(file, true)));
+                }
+            }
+        }
+    }
+}
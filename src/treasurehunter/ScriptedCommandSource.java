@@ -0,0 +1,54 @@
+package treasurehunter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out a fixed list of commands in order, then exits.<p>
+ * A script such as "b rope y m d h" can be turned into a source with parse(), so a whole session
+ * runs straight through the game's normal command path without waiting for anyone to type.
+ */
+
+public class ScriptedCommandSource implements CommandSource {
+    // instance variables
+    private String[] lines;
+    private int next;
+
+    /**
+     * @param lines The commands, one per line of input.
+     */
+    public ScriptedCommandSource(String[] lines) {
+        this.lines = lines;
+        next = 0;
+    }
+
+    /**
+     * Splits a script into commands. Every word is one line of input, whether the words are separated by
+     * spaces or newlines, and everything after a # on a line is a comment.
+     *
+     * @param script The script, e.g. "bob n b rope y m d h".
+     * @return A source that hands out the script's words in order.
+     */
+    public static ScriptedCommandSource parse(String script) {
+        LineReader reader = LineReader.of(script, true);
+        List<String> words = new ArrayList<>();
+        while (reader.hasNext()) {
+            words.add(reader.nextLine());
+        }
+        return new ScriptedCommandSource(words.toArray(new String[0]));
+    }
+
+    public String nextLine() {
+        if (next >= lines.length) {
+            return "x";
+        }
+        return lines[next++];
+    }
+
+    /**
+     * @return The number of commands handed out so far.
+     */
+    public int getLinesRead() {
+        return next;
+    }
+}
@@ -0,0 +1,81 @@
+package treasurehunter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the live sessions on a GameServer.<p>
+ * It enforces the maximum number of sessions and evicts sessions whose player has gone quiet for too long.
+ */
+
+public class SessionRegistry {
+    // instance variables
+    private ConcurrentHashMap<Long, GameSession> sessions;
+    private AtomicInteger count;
+    private int maxSessions;
+    private long idleTimeoutNanos;
+
+    /**
+     * @param maxSessions The most sessions that may be live at once.
+     * @param idleTimeoutNanos How long a session may wait for its player before it is evicted.
+     */
+    public SessionRegistry(int maxSessions, long idleTimeoutNanos) {
+        sessions = new ConcurrentHashMap<>();
+        count = new AtomicInteger();
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+    }
+
+    /**
+     * Adds a session unless the server is already full.
+     *
+     * @param session The new session.
+     * @return true if the session was added.
+     */
+    public boolean register(GameSession session) {
+        if (count.incrementAndGet() > maxSessions) {
+            count.decrementAndGet();
+            return false;
+        }
+        sessions.put(session.getId(), session);
+        return true;
+    }
+
+    public void unregister(GameSession session) {
+        if (sessions.remove(session.getId()) != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Closes every session that has not received a command within the idle timeout.
+     *
+     * @param now The current System.nanoTime().
+     * @return The number of sessions evicted.
+     */
+    public int evictIdle(long now) {
+        int evicted = 0;
+        for (GameSession session : sessions.values()) {
+            if (now - session.getLastActivity() > idleTimeoutNanos) {
+                session.close();
+                unregister(session);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes every session, for server shutdown.
+     */
+    public void closeAll() {
+        for (GameSession session : sessions.values()) {
+            session.close();
+            unregister(session);
+        }
+    }
+}
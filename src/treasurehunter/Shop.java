@@ -0,0 +1,368 @@
+package treasurehunter;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * The Shop class controls the cost of the items in the Treasure Hunt game. <p>
+ * The Shop class also acts as a go between for the Hunter's buyItem() method. <p>
+ * Prices are looked up in an immutable PriceTable that is built once for each markdown and samurai setting
+ * and shared by every shop with those settings. <p>
+ * A shop that trades through a Market instead takes a quote from it each time a customer enters, scaling the
+ * fixed prices by the market's factors, and charges the quoted prices until the customer leaves. Every purchase
+ * and sale is then reported back to the market. <p>
+ * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
+ */
+
+public class Shop {
+    // constants
+    private static final int WATER_COST = 2;
+    private static final int ROPE_COST = 4;
+    private static final int MACHETE_COST = 6;
+    private static final int HORSE_COST = 12;
+    private static final int BOAT_COST = 20;
+    private static final int BOOTS_COST = 8;
+    private static final int SHOVEL_COST = 8;
+    private static final int SWORD_COST = 0;
+
+    // static variables
+    private static volatile PriceTable[] priceTables = new PriceTable[0];
+
+    // instance variables
+    private PriceTable prices;
+    private Market market;
+    private PriceTable quote;   // the prices of the current visit when trading through a market
+    private Hunter customer;
+    private CommandSource input;
+    private OutputSink output;
+
+    /**
+     * The Shop constructor takes in a markdown value and leaves customer null until one enters the shop.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param samurai Whether the shop sells the samurai sword.
+     * @param input Where the shopkeeper reads the customer's answers from.
+     * @param output Where the shopkeeper's lines are shown.
+     */
+    public Shop(double markdown, boolean samurai, CommandSource input, OutputSink output) {
+        this(markdown, samurai, input, output, null);
+    }
+
+    /**
+     * Builds a shop whose prices follow a shared market.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param samurai Whether the shop sells the samurai sword.
+     * @param input Where the shopkeeper reads the customer's answers from.
+     * @param output Where the shopkeeper's lines are shown.
+     * @param market The market the shop trades through, or null for fixed prices.
+     */
+    public Shop(double markdown, boolean samurai, CommandSource input, OutputSink output, Market market) {
+        this.prices = priceTableFor(markdown, samurai);
+        this.market = market;
+        this.input = input;
+        this.output = output;
+        quote = null;
+        customer = null; // customer is set in the enter method
+    }
+
+    /**
+     * Method for entering the shop.
+     *
+     * @param hunter the Hunter entering the shop
+     * @param buyOrSell String that determines if hunter is "B"uying or "S"elling
+     * @return a String to be used for printing in the latest news
+     */
+    public String enter(Hunter hunter, String buyOrSell) {
+        customer = hunter;
+        if (market != null) {
+            quote = new PriceTable(prices, market.quote());
+        }
+        if (buyOrSell.equals("b")) {
+            output.print("Welcome to the shop! We have the finest wares in town.\n", Color.BLACK);
+            output.print("Currently we have the following items:\n", Color.BLACK);
+            output.print(inventory(), Color.BLACK);
+            output.print("What're you lookin' to buy? \n", Color.BLACK);
+            Item item = Item.fromName(input.nextLine().toLowerCase());
+            int cost = checkMarketPrice(item, true);
+            if (cost == 0) {
+                output.print("You like it huh? Just made it myself... wait\n", Color.BLACK);
+                buyItem(Item.SWORD);
+            } else {
+                if (!hunter.hasItem(Item.SWORD)) {
+                    output.print("It'll cost you " + cost + " gold" + ". Buy it (y/n)? \n", Color.BLACK);
+                    String option = input.nextLine().toLowerCase();
+                    if (option.equals("y")) {
+                        buyItem(item);
+                    }
+                }
+                else {
+                    output.print("JUST TAKE IT AND DON'T DICE ME!!!\n", Color.BLACK);
+                    buyItem(item);
+                }
+            }
+        } else {
+            output.print("What're you lookin' to sell? \n", Color.BLACK);
+            output.print("You currently have the following items: " + customer.getInventory(), Color.BLACK);
+            Item item = Item.fromName(input.nextLine().toLowerCase());
+            int cost = checkMarketPrice(item, false);
+            if (cost == 0) {
+                output.print("We don't want none of those.\n", Color.BLACK);
+            } else {
+                output.print("It'll get you " + cost + " gold" + ". Sell it (y/n)? \n", Color.BLACK);
+                String option = input.nextLine().toLowerCase();
+                if (option.equals("y")) {
+                    sellItem(item);
+                }
+            }
+        }
+        quote = null;
+        return "You left the shop";
+    }
+
+    /**
+     * A method that returns a string showing the items available in the shop
+     * (all shops sell the same items). The string is rendered once per price table, or once per quote.
+     *
+     * @return the string representing the shop's items available for purchase and their prices.
+     */
+    public String inventory() {
+        return currentPrices().inventory;
+    }
+
+    /**
+     * A method that lets the customer (a Hunter) buy an item.
+     *
+     * @param item The item being bought.
+     */
+    public void buyItem(Item item) {
+        int costOfItem = checkMarketPrice(item, true);
+        if (customer.hasItem(Item.SWORD)) {
+            costOfItem = 0;
+        }
+        if (customer.buyItem(item, costOfItem)) {
+            customer.getTally().count(GameMetrics.Event.ITEM_BOUGHT);
+            if (market != null) {
+                market.bought(item);
+            }
+            output.print("Ye' got yerself a " + item + ".\n", Color.BLACK);
+            if (costOfItem > 0) {
+                output.print(" Come again soon.\n", Color.BLACK);
+            }
+        } else {
+            customer.getTally().count(GameMetrics.Event.BUY_REFUSED);
+            output.print("Hmm, either you don't have enough gold or you've already got one of those!\n", Color.BLACK);
+        }
+    }
+
+    public void buyItem(String item) {
+        Item shopItem = Item.fromName(item);
+        if (shopItem == null) {
+            customer.getTally().count(GameMetrics.Event.BUY_REFUSED);
+            output.print("Hmm, either you don't have enough gold or you've already got one of those!\n", Color.BLACK);
+        } else {
+            buyItem(shopItem);
+        }
+    }
+
+    /**
+     * A pathway method that lets the Hunter sell an item.
+     *
+     * @param item The item being sold.
+     */
+    public void sellItem(Item item) {
+        int buyBackPrice = checkMarketPrice(item, false);
+        if (item != null && customer.sellItem(item, buyBackPrice)) {
+            customer.getTally().count(GameMetrics.Event.ITEM_SOLD);
+            if (market != null) {
+                market.sold(item);
+            }
+            output.print("Pleasure doin' business with you.\n", Color.BLACK);
+        } else {
+            customer.getTally().count(GameMetrics.Event.SELL_REFUSED);
+            output.print("Stop stringin' me along!\n", Color.BLACK);
+        }
+    }
+
+    public void sellItem(String item) {
+        sellItem(Item.fromName(item));
+    }
+
+    /**
+     * Determines and returns the cost of buying or selling an item.
+     * While a customer is in a shop that trades through a market, this is the price quoted when they entered.
+     *
+     * @param item The item in question, or null for something the shop doesn't stock.
+     * @param isBuying Whether the item is being bought or sold.
+     * @return The cost of buying or selling the item based on the isBuying parameter.
+     */
+    public int checkMarketPrice(Item item, boolean isBuying) {
+        if (item == null) {
+            return 0;
+        }
+        PriceTable table = currentPrices();
+        if (isBuying) {
+            return table.buy[item.ordinal()];
+        } else {
+            return table.sell[item.ordinal()];
+        }
+    }
+
+    public int checkMarketPrice(String item, boolean isBuying) {
+        return checkMarketPrice(Item.fromName(item), isBuying);
+    }
+
+    /**
+     * Looks up the cost of the item in the shop's price table.
+     *
+     * @param item The item being checked for cost.
+     * @return The cost of the item or 0 if the item is not found.
+     */
+    public int getCostOfItem(String item) {
+        return checkMarketPrice(item, true);
+    }
+
+    /**
+     * Looks up the cost of an item with the markdown applied.
+     *
+     * @param item The item being sold.
+     * @return The sell price of the item.
+     */
+    public int getBuyBackCost(String item) {
+        return checkMarketPrice(item, false);
+    }
+
+    /**
+     * @return The prices of the current visit, a fresh quote outside a visit, or the fixed prices without a market.
+     */
+    private PriceTable currentPrices() {
+        if (market == null) {
+            return prices;
+        }
+        return quote != null ? quote : new PriceTable(prices, market.quote());
+    }
+
+    /**
+     * Finds the shared price table for the given settings, building it the first time those settings are seen.<p>
+     * Lookups only read a small array, so the common case neither locks nor allocates.
+     *
+     * @param markdown Percentage of markdown for selling items in decimal format.
+     * @param samurai Whether the sword is for sale.
+     * @return The price table for those settings.
+     */
+    private static PriceTable priceTableFor(double markdown, boolean samurai) {
+        PriceTable table = findPriceTable(priceTables, markdown, samurai);
+        if (table != null) {
+            return table;
+        }
+        synchronized (Shop.class) {
+            table = findPriceTable(priceTables, markdown, samurai);
+            if (table == null) {
+                table = new PriceTable(markdown, samurai);
+                PriceTable[] grown = Arrays.copyOf(priceTables, priceTables.length + 1);
+                grown[grown.length - 1] = table;
+                priceTables = grown;
+            }
+            return table;
+        }
+    }
+
+    private static PriceTable findPriceTable(PriceTable[] tables, double markdown, boolean samurai) {
+        for (PriceTable table : tables) {
+            if (table.markdown == markdown && table.samurai == samurai) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks the item against the costs listed in the static variables.
+     *
+     * @param item The item being checked for cost.
+     * @return The base cost of the item.
+     */
+    private static int baseCost(Item item) {
+        switch (item) {
+            case WATER:
+                return WATER_COST;
+            case ROPE:
+                return ROPE_COST;
+            case MACHETE:
+                return MACHETE_COST;
+            case HORSE:
+                return HORSE_COST;
+            case SHOVEL:
+                return SHOVEL_COST;
+            case BOAT:
+                return BOAT_COST;
+            case BOOTS:
+                return BOOTS_COST;
+            default:
+                return SWORD_COST;
+        }
+    }
+
+    /**
+     * The buy and sell price of every item for one markdown and samurai setting, plus the rendered price list.
+     * A PriceTable never changes once built, so any number of shops and threads can share it.
+     * A quote from a Market is a PriceTable too, built from the fixed one.
+     */
+    private static final class PriceTable {
+        private final double markdown;
+        private final boolean samurai;
+        private final int[] buy;
+        private final int[] sell;
+        private final String inventory;
+
+        PriceTable(double markdown, boolean samurai) {
+            this.markdown = markdown;
+            this.samurai = samurai;
+            Item[] items = Item.values();
+            buy = new int[items.length];
+            sell = new int[items.length];
+            for (Item item : items) {
+                buy[item.ordinal()] = baseCost(item);
+                sell[item.ordinal()] = (int) (baseCost(item) * markdown);
+            }
+            inventory = render(buy, samurai);
+        }
+
+        /**
+         * Scales fixed prices by a market's factors. Nothing the fixed table gives away, or refuses to buy,
+         * changes, and nothing else becomes free.
+         *
+         * @param fixed The fixed prices.
+         * @param factors The factor for each item, indexed by Item ordinal.
+         */
+        PriceTable(PriceTable fixed, double[] factors) {
+            markdown = fixed.markdown;
+            samurai = fixed.samurai;
+            buy = new int[fixed.buy.length];
+            sell = new int[fixed.sell.length];
+            for (int i = 0; i < buy.length; i++) {
+                if (fixed.buy[i] > 0) {
+                    buy[i] = Math.max(1, (int) Math.round(fixed.buy[i] * factors[i]));
+                }
+                if (fixed.sell[i] > 0) {
+                    sell[i] = Math.max(1, (int) (buy[i] * markdown));
+                }
+            }
+            inventory = render(buy, samurai);
+        }
+
+        private static String render(int[] buy, boolean samurai) {
+            String str = "Water: " + buy[Item.WATER.ordinal()] + " gold" + "\n";
+            str += "Rope: " + buy[Item.ROPE.ordinal()] + " gold" + "\n";
+            str += "Machete: " + buy[Item.MACHETE.ordinal()] + " gold" + "\n";
+            str += "Boots: " + buy[Item.BOOTS.ordinal()] + " gold" + "\n";
+            str += "Shovel: " + buy[Item.SHOVEL.ordinal()] + " gold" + "\n";
+            str += "Horse: " + buy[Item.HORSE.ordinal()] + " gold" + "\n";
+            str += "Boat: " + buy[Item.BOAT.ordinal()] + " gold" + "\n";
+            if (samurai) {
+                str += "Sword: " + buy[Item.SWORD.ordinal()] + " gold" + "\n";
+            }
+            return str;
+        }
+    }
+}
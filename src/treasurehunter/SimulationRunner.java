@@ -0,0 +1,105 @@
+package treasurehunter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Runs many independent, headless games of Treasure Hunter across all cores and reports the combined results.<p>
+ * Every game gets its own random number source derived from the run's seed and the game's index,
+ * so results do not depend on the number of threads and any single game can be replayed with playOne(seedForGame(...)).<p>
+ * Usage: SimulationRunner [games] [mode] [maxTurns] [threads] [seed]
+ */
+
+public class SimulationRunner {
+    // constants
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private int threads;
+    private long seed;
+
+    /**
+     * @param mode The difficulty every simulated player picks.
+     * @param maxTurns The number of menu choices after which a simulated player exits.
+     * @param threads The number of worker threads.
+     * @param seed The seed every game's random number source is derived from.
+     */
+    public SimulationRunner(String mode, int maxTurns, int threads, long seed) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Derives the seed of one game in a run. This is the same value the game-th call to nextLong()
+     * on a SplittableRandom built from the run's seed would return, but it can be computed for any game
+     * directly, without walking the sequence or sharing a generator between threads.
+     *
+     * @param runSeed The seed of the whole run.
+     * @param game The index of the game within the run.
+     * @return The seed for that game.
+     */
+    public static long seedForGame(long runSeed, long game) {
+        return new SplittableRandom(runSeed + game * GOLDEN_GAMMA).nextLong();
+    }
+
+    /**
+     * Plays the given number of games and merges their results.
+     *
+     * @param games The number of games to play.
+     * @return The combined results.
+     */
+    public SimulationStats run(long games) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, games)
+                    .parallel()
+                    .collect(SimulationStats::new,
+                            (stats, i) -> stats.record(playOne(seedForGame(seed, i))),
+                            SimulationStats::merge))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a single headless game to completion.<p>
+     * The simulated player draws from a generator split off the game's own, so the same seed always replays the same game.
+     *
+     * @param gameSeed The seed of the game.
+     * @return The finished game.
+     */
+    public TreasureHunter playOne(long gameSeed) {
+        SplittableRandom random = new SplittableRandom(gameSeed);
+        RandomPlayer player = new RandomPlayer(mode, maxTurns, random.split());
+        TreasureHunter game = new TreasureHunter(player, NullOutputSink.INSTANCE, random);
+        game.play();
+        return game;
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String mode = args.length > 1 ? args[1] : "n";
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        GameMetrics.start(System.out);
+        SimulationRunner runner = new SimulationRunner(mode, maxTurns, threads, seed);
+        long start = System.nanoTime();
+        SimulationStats stats = runner.run(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("seed: " + seed);
+        System.out.print(stats.infoString());
+        System.out.printf("%.2f s on %d threads, %.0f games/minute%n", seconds, threads, games / seconds * 60);
+        if (GameMetrics.isEnabled()) {
+            System.out.print(GameMetrics.snapshotString());
+        }
+    }
+}
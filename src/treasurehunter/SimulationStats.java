@@ -0,0 +1,159 @@
+package treasurehunter;
+
+/**
+ * Aggregate results for a batch of simulated games.<p>
+ * Each worker fills its own SimulationStats and the partial results are merged at the end,
+ * so no counters are shared between threads while games are running.<p>
+ * Besides the outcome counts, each batch keeps fixed-size histograms of final gold, turns to win or lose,
+ * towns visited, brawls and broken items, so a batch uses the same memory however many games it records.
+ */
+
+public class SimulationStats {
+    // instance variables
+    private long games;
+    private long wins;
+    private long losses;
+    private long quits;
+    private long totalTurns;
+    private int maxTurns;
+    private Histogram finalGold;
+    private Histogram turnsToWin;
+    private Histogram turnsToLose;
+    private Histogram townsVisited;
+    private Histogram brawlsWon;
+    private Histogram brawlsLost;
+    private Histogram itemsBroken;
+
+    public SimulationStats() {
+        finalGold = new Histogram();
+        turnsToWin = new Histogram();
+        turnsToLose = new Histogram();
+        townsVisited = new Histogram();
+        brawlsWon = new Histogram();
+        brawlsLost = new Histogram();
+        itemsBroken = new Histogram();
+    }
+
+    /**
+     * Records the outcome of a finished game.
+     *
+     * @param game A game whose play() method has returned.
+     */
+    public void record(TreasureHunter game) {
+        Hunter hunter = game.getHunter();
+        record(hunter.win, hunter.lose, game.getTurns(), hunter.gold, game.getTownsVisited(),
+                hunter.getBrawlsWon(), hunter.getBrawlsLost(), hunter.getItemsBroken());
+    }
+
+    /**
+     * Records the outcome of a game that was played without a TreasureHunter object, e.g. by BatchSimulator.
+     */
+    void record(boolean won, boolean lost, int turns, int gold, int towns, int brawlsWonInGame,
+                int brawlsLostInGame, int itemsBrokenInGame) {
+        games++;
+        if (won) {
+            wins++;
+            turnsToWin.record(turns);
+        } else if (lost) {
+            losses++;
+            turnsToLose.record(turns);
+        } else {
+            quits++;
+        }
+        totalTurns += turns;
+        maxTurns = Math.max(maxTurns, turns);
+        finalGold.record(gold);
+        townsVisited.record(towns);
+        brawlsWon.record(brawlsWonInGame);
+        brawlsLost.record(brawlsLostInGame);
+        itemsBroken.record(itemsBrokenInGame);
+    }
+
+    /**
+     * Adds the results of another batch to this one.
+     *
+     * @param other The batch to add.
+     */
+    public void merge(SimulationStats other) {
+        games += other.games;
+        wins += other.wins;
+        losses += other.losses;
+        quits += other.quits;
+        totalTurns += other.totalTurns;
+        maxTurns = Math.max(maxTurns, other.maxTurns);
+        finalGold.merge(other.finalGold);
+        turnsToWin.merge(other.turnsToWin);
+        turnsToLose.merge(other.turnsToLose);
+        townsVisited.merge(other.townsVisited);
+        brawlsWon.merge(other.brawlsWon);
+        brawlsLost.merge(other.brawlsLost);
+        itemsBroken.merge(other.itemsBroken);
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    public long getQuits() {
+        return quits;
+    }
+
+    public long getTotalTurns() {
+        return totalTurns;
+    }
+
+    public Histogram getFinalGold() {
+        return finalGold;
+    }
+
+    public Histogram getTurnsToWin() {
+        return turnsToWin;
+    }
+
+    public Histogram getTurnsToLose() {
+        return turnsToLose;
+    }
+
+    public Histogram getTownsVisited() {
+        return townsVisited;
+    }
+
+    public Histogram getBrawlsWon() {
+        return brawlsWon;
+    }
+
+    public Histogram getBrawlsLost() {
+        return brawlsLost;
+    }
+
+    public Histogram getItemsBroken() {
+        return itemsBroken;
+    }
+
+    /**
+     * @return A printable summary of the batch.
+     */
+    public String infoString() {
+        double perGame = games == 0 ? 0 : 100.0 / games;
+        double averageTurns = games == 0 ? 0 : (double) totalTurns / games;
+        return String.format("games: %d%nwins: %d (%.2f%%)%nlosses: %d (%.2f%%)%nquits: %d (%.2f%%)%n"
+                        + "turns: %.2f average, %d max%n",
+                games, wins, wins * perGame, losses, losses * perGame, quits, quits * perGame,
+                averageTurns, maxTurns)
+                + finalGold.infoString("final gold")
+                + turnsToWin.infoString("turns to win")
+                + turnsToLose.infoString("turns to lose")
+                + townsVisited.infoString("towns visited")
+                + brawlsWon.infoString("brawls won")
+                + brawlsLost.infoString("brawls lost")
+                + itemsBroken.infoString("items broken");
+    }
+}
@@ -0,0 +1,331 @@
+package treasurehunter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of fixed-size GameSnapshot slots, memory-mapped so that millions of parked games live off-heap.<p>
+ * The file starts with a HEADER_SIZE-byte header: the magic number "THSS", the snapshot version and the slot size.
+ * Slot i sits at byte HEADER_SIZE + i * GameSnapshot.SIZE. The file is mapped in regions of just under 1 GB, since
+ * a single mapping cannot exceed 2 GB. Reads and writes use absolute offsets only, so different threads may work on
+ * different slots at the same time.<p>
+ * A store whose header names another version or slot size is refused. A store from before the header existed,
+ * version 1 records of 48 bytes from offset 0, is rewritten in the current layout when it is opened.<p>
+ * Usage (benchmark): SnapshotStore [file] [slots]<br>
+ * Usage (self-check): SnapshotStore -check [file]<br>
+ * The self-check writes a version 1 store by hand, opens it and checks that every game comes back, exiting with 1
+ * on failure.
+ */
+
+public class SnapshotStore implements Closeable {
+    // constants
+    private static final int SLOTS_PER_REGION = (1 << 30) / GameSnapshot.SIZE;
+    private static final int REGION_BYTES = SLOTS_PER_REGION * GameSnapshot.SIZE;
+    private static final int MAGIC = 0x54485353;          // "THSS"
+    static final int HEADER_SIZE = 16;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOT_SIZE_OFFSET = 8;
+    private static final int MIGRATE_SLOTS = 4096;
+
+    // instance variables
+    private FileChannel channel;
+    private MappedByteBuffer[] regions;
+    private long capacity;
+
+    /**
+     * Opens a store, creating or growing the file so it has room for the given number of slots.
+     * A version 1 store without a header is rewritten in the current layout first.
+     *
+     * @param file The backing file.
+     * @param capacity The number of slots.
+     * @throws IOException if the file cannot be opened, or is not a store this version can read.
+     */
+    public SnapshotStore(Path file, long capacity) throws IOException {
+        this.capacity = capacity;
+        channel = open(file);
+        try {
+            if (!checkHeader(file)) {
+                channel.close();
+                migrate(file);
+                channel = open(file);
+            }
+            int regionCount = (int) ((capacity + SLOTS_PER_REGION - 1) / SLOTS_PER_REGION);
+            regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                long start = (long) i * REGION_BYTES;
+                long size = Math.min(REGION_BYTES, capacity * GameSnapshot.SIZE - start);
+                regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + start, size);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Parks a game in a slot, replacing whatever was there.
+     *
+     * @param slot The slot to write.
+     * @param game A game that has been started.
+     * @param resumeSeed The seed the restored game's random number source will be built from.
+     */
+    public void save(long slot, TreasureHunter game, long resumeSeed) {
+        GameSnapshot.encode(game, resumeSeed, region(slot), offset(slot));
+    }
+
+    /**
+     * Brings a parked game back.
+     *
+     * @param slot The slot to read.
+     * @param input Where the restored game's commands come from.
+     * @param output Where the restored game's text is shown.
+     * @return The restored game, or null if the slot is empty.
+     */
+    public TreasureHunter load(long slot, CommandSource input, OutputSink output) {
+        return load(slot, input, output, null);
+    }
+
+    /**
+     * Brings back a game parked from a World.
+     *
+     * @param slot The slot to read.
+     * @param input Where the restored game's commands come from.
+     * @param output Where the restored game's text is shown.
+     * @param world The world the game was parked from, or null for a game without one.
+     * @return The restored game, or null if the slot is empty.
+     */
+    public TreasureHunter load(long slot, CommandSource input, OutputSink output, World world) {
+        return GameSnapshot.decode(region(slot), offset(slot), input, output, world);
+    }
+
+    /**
+     * Marks a slot as empty.
+     *
+     * @param slot The slot to clear.
+     */
+    public void clear(long slot) {
+        region(slot).put(offset(slot), (byte) 0);
+    }
+
+    /**
+     * Writes all changes through to the storage device.
+     */
+    public void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer region(long slot) {
+        if (slot < 0 || slot >= capacity) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " is outside a store of " + capacity + " slots");
+        }
+        return regions[(int) (slot / SLOTS_PER_REGION)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot % SLOTS_PER_REGION) * GameSnapshot.SIZE;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes a header into a new file, or checks the one already there.
+     *
+     * @return false if the file is a version 1 store without a header.
+     * @throws IOException if the file holds another version or slot size, or is not a store at all.
+     */
+    private boolean checkHeader(Path file) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize == 0) {
+            channel.write(header(), 0);
+            return true;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.remaining() >= VERSION_OFFSET && header.getInt(0) == MAGIC) {
+            if (header.remaining() < HEADER_SIZE) {
+                throw new IOException(file + " has a torn header");
+            }
+            int version = header.get(VERSION_OFFSET);
+            int slotSize = header.getInt(SLOT_SIZE_OFFSET);
+            if (version != GameSnapshot.VERSION || slotSize != GameSnapshot.SIZE) {
+                throw new IOException(file + " holds version " + version + " snapshots of " + slotSize
+                        + " bytes, not version " + GameSnapshot.VERSION + " of " + GameSnapshot.SIZE);
+            }
+            return true;
+        }
+        // a version 1 store starts with its first record, whose version byte is 1 or 0 for an empty slot
+        if (fileSize % GameSnapshot.VERSION_1_SIZE == 0 && header.get(0) <= 1 && header.get(0) >= 0) {
+            return false;
+        }
+        throw new IOException(file + " is not a snapshot store");
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(0, MAGIC);
+        header.put(VERSION_OFFSET, GameSnapshot.VERSION);
+        header.putInt(SLOT_SIZE_OFFSET, GameSnapshot.SIZE);
+        return header;
+    }
+
+    /**
+     * Rewrites a version 1 store in the current layout, replacing the file only once the copy is complete.
+     */
+    private static void migrate(Path file) throws IOException {
+        Path copy = file.resolveSibling(file.getFileName() + ".migrating");
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(header(), 0);
+            ByteBuffer oldSlots = ByteBuffer.allocate(MIGRATE_SLOTS * GameSnapshot.VERSION_1_SIZE);
+            ByteBuffer newSlots = ByteBuffer.allocate(MIGRATE_SLOTS * GameSnapshot.SIZE);
+            byte[] record = new byte[GameSnapshot.VERSION_1_SIZE];
+            long slots = in.size() / GameSnapshot.VERSION_1_SIZE;
+            for (long first = 0; first < slots; first += MIGRATE_SLOTS) {
+                oldSlots.clear();
+                readFully(in, oldSlots, first * GameSnapshot.VERSION_1_SIZE);
+                oldSlots.flip();
+                newSlots.clear();
+                while (oldSlots.remaining() >= record.length) {
+                    oldSlots.get(record);
+                    if (record[0] == 0) {
+                        newSlots.put(new byte[GameSnapshot.SIZE]);
+                    } else {
+                        newSlots.put(GameSnapshot.upgrade(record));
+                    }
+                }
+                newSlots.flip();
+                long position = HEADER_SIZE + first * GameSnapshot.SIZE;
+                while (newSlots.hasRemaining()) {
+                    position += out.write(newSlots, position);
+                }
+            }
+            out.force(true);
+        }
+        Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads from a position until the buffer is full or the file ends.
+     */
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("-check")) {
+            check(Path.of(args.length > 1 ? args[1] : "snapshots-v1.bin"));
+            return;
+        }
+        Path file = Path.of(args.length > 0 ? args[0] : "snapshots.bin");
+        long slots = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+
+        // park the same finished game in every slot, then bring them all back
+        SimulationRunner runner = new SimulationRunner("n", 50, 1, 0);
+        TreasureHunter game = runner.playOne(1);
+        try (SnapshotStore store = new SnapshotStore(file, slots)) {
+            long start = System.nanoTime();
+            for (long slot = 0; slot < slots; slot++) {
+                store.save(slot, game, slot);
+            }
+            long saved = System.nanoTime();
+            long gold = 0;
+            for (long slot = 0; slot < slots; slot++) {
+                gold += store.load(slot, () -> "x", NullOutputSink.INSTANCE).getHunter().gold;
+            }
+            long loaded = System.nanoTime();
+            System.out.printf("%d snapshots, %d bytes each%n", slots, GameSnapshot.SIZE);
+            System.out.printf("save: %.0f ns/snapshot%n", (double) (saved - start) / slots);
+            System.out.printf("load: %.0f ns/snapshot (checksum %d)%n", (double) (loaded - saved) / slots, gold);
+        }
+    }
+
+    /**
+     * Writes a version 1 store of a few games and an empty slot, then checks that opening it brings every game back
+     * and that a store with a foreign header is refused.
+     */
+    private static void check(Path file) throws IOException {
+        int slots = 10;
+        SimulationRunner runner = new SimulationRunner("n", 50, 1, 0);
+        String[] expected = new String[slots];
+        ByteBuffer store = ByteBuffer.allocate(slots * GameSnapshot.VERSION_1_SIZE);
+        for (int slot = 0; slot < slots; slot++) {
+            if (slot == 3) {
+                continue;   // left empty
+            }
+            byte[] record = GameSnapshot.encode(runner.playOne(slot), slot);
+            expected[slot] = GameSnapshot.describe(record);
+            // the version 1 layout is the current one without the town id
+            record[0] = 1;
+            store.put(slot * GameSnapshot.VERSION_1_SIZE, record, 0, 24);
+            store.put(slot * GameSnapshot.VERSION_1_SIZE + 24, record, 32, GameSnapshot.VERSION_1_SIZE - 24);
+        }
+        Files.write(file, store.array());
+
+        boolean ok = true;
+        for (int pass = 1; pass <= 2; pass++) {
+            // the first pass migrates the file, the second reads the migrated one
+            try (SnapshotStore opened = new SnapshotStore(file, slots)) {
+                for (int slot = 0; slot < slots; slot++) {
+                    TreasureHunter game = opened.load(slot, () -> "x", NullOutputSink.INSTANCE);
+                    String actual = game == null ? null : GameSnapshot.describe(GameSnapshot.encode(game, slot));
+                    boolean match = expected[slot] == null ? actual == null : expected[slot].equals(actual);
+                    if (!match) {
+                        System.out.println("FAIL pass " + pass + " slot " + slot + ": " + actual
+                                + " (expected " + expected[slot] + ")");
+                        ok = false;
+                    }
+                }
+            }
+        }
+        long size = Files.size(file);
+        if (size != HEADER_SIZE + (long) slots * GameSnapshot.SIZE) {
+            System.out.println("FAIL migrated store is " + size + " bytes");
+            ok = false;
+        }
+
+        // a header from another version must be refused, not read
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) (GameSnapshot.VERSION + 1)}), VERSION_OFFSET);
+        }
+        try {
+            new SnapshotStore(file, slots).close();
+            System.out.println("FAIL a store of another version was opened");
+            ok = false;
+        } catch (IOException e) {
+            System.out.println("refused: " + e.getMessage());
+        }
+        Files.delete(file);
+
+        System.out.println(ok ? "ok: version 1 store of " + slots + " slots migrated and read back" : "FAIL");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package treasurehunter;
+
+/**
+ * The strategies a Tournament can pit against each other.<p>
+ * All but "optimal" are variations on one simple plan: hunt for treasure in every town, dig when there is a shovel,
+ * buy the item the terrain needs and move on, and look for trouble when there is no gold to buy it.
+ * The variations buy a shovel before anything else, keep brawling in easy towns until they have a reserve of gold,
+ * or ask the shop for the sword first, which costs nothing (SWORD_COST is 0) and makes every later purchase free.
+ * "optimal" follows a policy solved by OptimalPolicySolver.
+ */
+
+public class Strategies {
+    // constants
+    public static final String[] NAMES = {"baseline", "shovel-first", "easy-trouble", "sword-rush"};
+    private static final int RESERVE = 30;
+
+    private Strategies() {
+    }
+
+    /**
+     * @param name One of NAMES.
+     * @return The strategy with that name.
+     */
+    public static Strategy named(String name) {
+        switch (name) {
+            case "baseline":
+                return new Plan(false, false, false);
+            case "shovel-first":
+                return new Plan(true, false, false);
+            case "easy-trouble":
+                return new Plan(false, true, false);
+            case "sword-rush":
+                return new Plan(false, false, true);
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + name);
+        }
+    }
+
+    /**
+     * Plays the best moves of a solved policy. Once there are more turns left than were solved for,
+     * it plays as if there were exactly the solved number left.
+     *
+     * @param solver A solver that has been solved for the mode the games are played in.
+     * @return The strategy.
+     */
+    public static Strategy optimal(OptimalPolicySolver solver) {
+        return (game, turnsLeft) -> {
+            Hunter hunter = game.getHunter();
+            Town town = game.getCurrentTown();
+            return solver.bestAction(Math.min(turnsLeft, solver.getTurns()), Math.max(hunter.gold, 0),
+                    hunter.getKitMask(), Integer.bitCount(hunter.getTreasureMask()),
+                    town.getTerrain().getNeededKitItem(), town.isToughTown(), town.getDug(), town.getTreasureDig());
+        };
+    }
+
+    /**
+     * The simple plan, with each of its variations switched on or off.
+     */
+    private static final class Plan implements Strategy {
+        // instance variables
+        private final boolean shovelFirst;
+        private final boolean troubleInEasyTowns;
+        private final boolean swordRush;
+
+        Plan(boolean shovelFirst, boolean troubleInEasyTowns, boolean swordRush) {
+            this.shovelFirst = shovelFirst;
+            this.troubleInEasyTowns = troubleInEasyTowns;
+            this.swordRush = swordRush;
+        }
+
+        public int nextMove(TreasureHunter game, int turnsLeft) {
+            Hunter hunter = game.getHunter();
+            Town town = game.getCurrentTown();
+            if (swordRush && !hunter.hasItem(Item.SWORD)) {
+                return OptimalPolicySolver.BUY + Item.SWORD.ordinal();
+            }
+            if (!town.getTreasureDig()) {
+                return OptimalPolicySolver.HUNT;
+            }
+            if (shovelFirst && !hunter.hasItem(Item.SHOVEL) && canAfford(game, Item.SHOVEL)) {
+                return OptimalPolicySolver.BUY + Item.SHOVEL.ordinal();
+            }
+            if (hunter.hasItem(Item.SHOVEL) && !town.getDug()) {
+                return OptimalPolicySolver.DIG;
+            }
+            if (troubleInEasyTowns && !town.isToughTown() && hunter.gold < RESERVE) {
+                return OptimalPolicySolver.LOOK_FOR_TROUBLE;
+            }
+            Item needed = town.getTerrain().getNeededKitItem();
+            if (hunter.hasItem(needed)) {
+                return OptimalPolicySolver.MOVE;
+            }
+            if (canAfford(game, needed)) {
+                return OptimalPolicySolver.BUY + needed.ordinal();
+            }
+            return OptimalPolicySolver.LOOK_FOR_TROUBLE;
+        }
+
+        private static boolean canAfford(TreasureHunter game, Item item) {
+            Hunter hunter = game.getHunter();
+            if (hunter.hasItem(Item.SWORD)) {
+                return true;
+            }
+            return hunter.gold >= game.getCurrentTown().getShop().checkMarketPrice(item, true);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package treasurehunter;
+
+/**
+ * A way of playing Treasure Hunter: given the state of a game, it picks the next move.<p>
+ * Moves use the action codes of OptimalPolicySolver, so a solved policy can play like any other strategy.
+ * A StrategyPlayer turns each move into the menu and shop answers the game expects.
+ * Strategies are shared by every game in a tournament, so they must not keep state between calls.
+ */
+
+public interface Strategy {
+    /**
+     * Picks the next move.
+     *
+     * @param game The game being played; its hunter and current town are set.
+     * @param turnsLeft The number of menu choices left before the player gives up.
+     * @return One of the OptimalPolicySolver action codes.
+     */
+    int nextMove(TreasureHunter game, int turnsLeft);
+}
@@ -0,0 +1,99 @@
+package treasurehunter;
+
+/**
+ * A player that lets a Strategy choose every move, and answers the game's prompts the way the move needs.<p>
+ * A purchase is confirmed with "y" unless the item is free or the hunter already carries a sword, since the shop
+ * asks for no confirmation then, and a sale is confirmed unless the shop offers nothing for the item.
+ * After a fixed number of menu choices the player exits, so every game ends.
+ */
+
+public class StrategyPlayer implements CommandSource {
+    // constants
+    private static final Item[] ITEMS = Item.values();
+
+    // instance variables
+    private Strategy strategy;
+    private String mode;
+    private int maxTurns;
+    private TreasureHunter game;
+    private int turns;
+    private int linesRead;
+    private String[] pending;
+    private int pendingCount;
+
+    /**
+     * @param strategy The strategy choosing the moves.
+     * @param mode The difficulty the player picks: "e", "n", "h" or "s".
+     * @param maxTurns The number of menu choices after which the player exits.
+     */
+    public StrategyPlayer(Strategy strategy, String mode, int maxTurns) {
+        this.strategy = strategy;
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        turns = 0;
+        linesRead = 0;
+        pending = new String[2];
+        pendingCount = 0;
+    }
+
+    /**
+     * Gives the player the game it is playing, which the strategy looks at before every move.
+     *
+     * @param game The game, before play() is called.
+     */
+    public void attach(TreasureHunter game) {
+        this.game = game;
+    }
+
+    public String nextLine() {
+        linesRead++;
+        if (linesRead == 1) {
+            return "sim";
+        }
+        if (linesRead == 2) {
+            return mode;
+        }
+        if (pendingCount > 0) {
+            pendingCount--;
+            return pending[pendingCount];
+        }
+        if (turns >= maxTurns) {
+            return "x";
+        }
+        int move = strategy.nextMove(game, maxTurns - turns);
+        turns++;
+        if (move >= OptimalPolicySolver.BUY && move < OptimalPolicySolver.SELL) {
+            Item item = ITEMS[move - OptimalPolicySolver.BUY];
+            boolean confirm = shop().checkMarketPrice(item, true) != 0 && !game.getHunter().hasItem(Item.SWORD);
+            queue(item.getItemName(), confirm);
+            return "b";
+        }
+        if (move >= OptimalPolicySolver.SELL && move < OptimalPolicySolver.MOVE) {
+            Item item = ITEMS[move - OptimalPolicySolver.SELL];
+            queue(item.getItemName(), shop().checkMarketPrice(item, false) != 0);
+            return "s";
+        }
+        return OptimalPolicySolver.describeAction(move);
+    }
+
+    /**
+     * @return The shop of the town the hunter is in, which quotes the prices the next visit will see.
+     */
+    private Shop shop() {
+        return game.getCurrentTown().getShop();
+    }
+
+    /**
+     * Queues the answers to a shop visit, which are handed out last-in first-out.
+     */
+    private void queue(String itemName, boolean confirm) {
+        if (confirm) {
+            pending[1] = itemName;
+            pending[0] = "y";
+            pendingCount = 2;
+        } else {
+            pending[0] = itemName;
+            pendingCount = 1;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package treasurehunter;
+
+import java.util.SplittableRandom;
+
+/**
+ * The Terrain class is designed to represent the zones between the towns in the Treasure Hunter game.<p>
+ * There are only six terrains and none of them ever change, so each one is built once and shared by every town.
+ * Every terrain needs a different item, so the item alone identifies the terrain.
+ * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
+ */
+
+public class Terrain {
+    // constants
+    private static final Terrain[] TERRAINS = {
+            new Terrain(Colors.CYAN + "Marsh" + Colors.RESET, Item.BOOTS),
+            new Terrain(Colors.CYAN + "Mountains" + Colors.RESET, Item.ROPE),
+            new Terrain(Colors.CYAN + "Ocean" + Colors.RESET, Item.BOAT),
+            new Terrain(Colors.CYAN + "Plains" + Colors.RESET, Item.HORSE),
+            new Terrain(Colors.CYAN + "Desert" + Colors.RESET, Item.WATER),
+            new Terrain(Colors.CYAN + "Jungle" + Colors.RESET, Item.MACHETE)
+    };
+    // upper bound of each terrain's share of a random draw, in the same order as TERRAINS
+    private static final double[] CUMULATIVE_CHANCE = {1.0/6, 2.0/6, 3.0/6, 4.0/6, 5.0/6};
+    private static final Terrain[] BY_ITEM = buildItemIndex();
+
+    // instance variables
+    private final String terrainName;
+    private final Item neededItem;
+    private final String info;
+
+    /**
+     * Sets the class member variables
+     *
+     * @param name The name of the zone.
+     * @param item The item needed in order to cross the zone.
+     */
+    private Terrain(String name, Item item) {
+        terrainName = name;
+        neededItem = item;
+        info = "You are surrounded by " + terrainName + " which needs a(n) " + neededItem + " to cross.";
+    }
+
+    /**
+     * @param neededItem The item needed to cross the terrain.
+     * @return The shared terrain that needs the item.
+     */
+    public static Terrain forItem(Item neededItem) {
+        Terrain terrain = BY_ITEM[neededItem.ordinal()];
+        if (terrain == null) {
+            throw new IllegalArgumentException("No terrain needs a " + neededItem);
+        }
+        return terrain;
+    }
+
+    /**
+     * Picks the terrain around a new town with a single draw, each terrain being equally likely.
+     *
+     * @param random The game's random number source.
+     * @return One of the shared terrains.
+     */
+    public static Terrain random(SplittableRandom random) {
+        return fromDraw(random.nextDouble());
+    }
+
+    /**
+     * @param rnd A draw from nextDouble().
+     * @return The terrain that draw picks.
+     */
+    static Terrain fromDraw(double rnd) {
+        int i = 0;
+        while (i < CUMULATIVE_CHANCE.length && rnd >= CUMULATIVE_CHANCE[i]) {
+            i++;
+        }
+        return TERRAINS[i];
+    }
+
+    // accessors
+    public String getTerrainName() {
+        return terrainName;
+    }
+
+    public String getNeededItem() {
+        return neededItem.getItemName();
+    }
+
+    public Item getNeededKitItem() {
+        return neededItem;
+    }
+
+    /**
+     * Guards against a hunter crossing the zone without the proper item.
+     * Checks the hunter's kit for the proper item and determines whether the hunter can cross.
+     *
+     * @param hunter The Hunter object trying to cross the terrain.
+     * @return true if the Hunter has the proper item.
+     */
+    public boolean canCrossTerrain(Hunter hunter) {
+        return hunter.hasItem(neededItem);
+    }
+
+    /**
+     * @return A string representation of the terrain and item to cross it.
+     */
+    public String infoString() {
+        return info;
+    }
+
+    private static Terrain[] buildItemIndex() {
+        Terrain[] byItem = new Terrain[Item.values().length];
+        for (Terrain terrain : TERRAINS) {
+            byItem[terrain.neededItem.ordinal()] = terrain;
+        }
+        return byItem;
+    }
+}
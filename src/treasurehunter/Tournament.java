@@ -0,0 +1,239 @@
+package treasurehunter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Plays several strategies against the same set of games, across all cores, and compares how often each one wins.<p>
+ * Game i is played by every strategy from the same seed, seedForGame(seed, i), so the strategies get the same
+ * first town and the same luck for as long as they make the same moves. Because of these common random numbers,
+ * the difference between two strategies is measured on each game and only the games where their results differ
+ * add noise, so a difference shows up in far fewer games than comparing two independent runs would need.<p>
+ * Each win rate is given with a 95% Wilson score interval. Each strategy is also compared with the first one,
+ * with a 95% interval for the paired difference and, for comparison, the width the interval would have had
+ * if the two had been played on independent seeds.<p>
+ * Usage: Tournament [games] [mode] [maxTurns] [threads] [seed] [strategy,...]
+ * where the strategies are any of Strategies.NAMES or "optimal".
+ */
+
+public class Tournament {
+    // constants
+    private static final double Z = 1.959964;   // the two-sided 95% point of the standard normal
+    private static final int GOLD_CAP = 100;
+
+    // instance variables
+    private String mode;
+    private int maxTurns;
+    private int threads;
+    private long seed;
+    private Strategy[] strategies;
+
+    /**
+     * @param mode The difficulty every game is played at.
+     * @param maxTurns The number of menu choices after which a player exits.
+     * @param threads The number of worker threads.
+     * @param seed The seed every game's random number source is derived from.
+     * @param strategies The strategies; the first is the one the others are compared with.
+     */
+    public Tournament(String mode, int maxTurns, int threads, long seed, Strategy[] strategies) {
+        this.mode = mode;
+        this.maxTurns = maxTurns;
+        this.threads = threads;
+        this.seed = seed;
+        this.strategies = strategies;
+    }
+
+    /**
+     * Has every strategy play the given number of games.
+     *
+     * @param games The number of games each strategy plays.
+     * @return The combined results.
+     */
+    public Results run(long games) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> LongStream.range(0, games)
+                    .parallel()
+                    .collect(() -> new Results(strategies.length),
+                            (results, i) -> playRound(results, SimulationRunner.seedForGame(seed, i)),
+                            Results::merge))
+                    .join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays a single headless game with one strategy.
+     *
+     * @param strategy The strategy choosing the moves.
+     * @param gameSeed The seed of the game.
+     * @return The finished game.
+     */
+    public TreasureHunter playOne(Strategy strategy, long gameSeed) {
+        StrategyPlayer player = new StrategyPlayer(strategy, mode, maxTurns);
+        TreasureHunter game = new TreasureHunter(player, NullOutputSink.INSTANCE, new SplittableRandom(gameSeed));
+        player.attach(game);
+        game.play();
+        return game;
+    }
+
+    private void playRound(Results results, long gameSeed) {
+        boolean baselineWon = false;
+        results.games++;
+        for (int s = 0; s < strategies.length; s++) {
+            TreasureHunter game = playOne(strategies[s], gameSeed);
+            boolean won = game.getHunter().win;
+            if (won) {
+                results.wins[s]++;
+                results.turnsToWin[s] += game.getTurns();
+            } else if (game.getHunter().lose) {
+                results.losses[s]++;
+            }
+            if (s == 0) {
+                baselineWon = won;
+            } else if (won && !baselineWon) {
+                results.onlyThisWon[s]++;
+            } else if (!won && baselineWon) {
+                results.onlyBaselineWon[s]++;
+            }
+        }
+    }
+
+    /**
+     * The outcomes of a tournament, kept as counts so that each worker's results can be merged.
+     */
+    public static final class Results {
+        // instance variables
+        private long games;
+        private long[] wins;
+        private long[] losses;
+        private long[] turnsToWin;
+        // games won by strategy s but not by the first strategy, and the other way round
+        private long[] onlyThisWon;
+        private long[] onlyBaselineWon;
+
+        Results(int strategies) {
+            wins = new long[strategies];
+            losses = new long[strategies];
+            turnsToWin = new long[strategies];
+            onlyThisWon = new long[strategies];
+            onlyBaselineWon = new long[strategies];
+        }
+
+        void merge(Results other) {
+            games += other.games;
+            for (int s = 0; s < wins.length; s++) {
+                wins[s] += other.wins[s];
+                losses[s] += other.losses[s];
+                turnsToWin[s] += other.turnsToWin[s];
+                onlyThisWon[s] += other.onlyThisWon[s];
+                onlyBaselineWon[s] += other.onlyBaselineWon[s];
+            }
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * @param strategy The index of the strategy.
+         * @return The fraction of games it won.
+         */
+        public double winRate(int strategy) {
+            return games == 0 ? 0 : (double) wins[strategy] / games;
+        }
+
+        /**
+         * @param strategy The index of the strategy.
+         * @return The lower and upper ends of the 95% Wilson score interval for its win rate.
+         */
+        public double[] winRateInterval(int strategy) {
+            double n = games;
+            double p = winRate(strategy);
+            double centre = (p + Z * Z / (2 * n)) / (1 + Z * Z / n);
+            double halfWidth = Z / (1 + Z * Z / n) * Math.sqrt(p * (1 - p) / n + Z * Z / (4 * n * n));
+            return new double[] {centre - halfWidth, centre + halfWidth};
+        }
+
+        /**
+         * @param strategy The index of the strategy.
+         * @return Its win rate minus the first strategy's, measured game by game.
+         */
+        public double difference(int strategy) {
+            return games == 0 ? 0 : (double) (onlyThisWon[strategy] - onlyBaselineWon[strategy]) / games;
+        }
+
+        /**
+         * @param strategy The index of the strategy.
+         * @return The half-width of the 95% interval for the paired difference from the first strategy.
+         */
+        public double differenceHalfWidth(int strategy) {
+            double d = difference(strategy);
+            double variance = (double) (onlyThisWon[strategy] + onlyBaselineWon[strategy]) / games - d * d;
+            return Z * Math.sqrt(Math.max(variance, 0) / games);
+        }
+
+        /**
+         * @param strategy The index of the strategy.
+         * @return The half-width the interval for the difference would have if the two strategies had been
+         *         played on independent seeds.
+         */
+        public double unpairedHalfWidth(int strategy) {
+            double p = winRate(strategy);
+            double q = winRate(0);
+            return Z * Math.sqrt((p * (1 - p) + q * (1 - q)) / games);
+        }
+
+        /**
+         * @param names The names of the strategies.
+         * @return A table of every strategy's results.
+         */
+        public String infoString(String[] names) {
+            StringBuilder str = new StringBuilder();
+            str.append(games).append(" games per strategy\n");
+            for (int s = 0; s < wins.length; s++) {
+                double[] interval = winRateInterval(s);
+                str.append(String.format("%-14s win %6.2f%% [%6.2f%%, %6.2f%%]  lose %6.2f%%  mean turns to win %6.1f",
+                        names[s], 100 * winRate(s), 100 * interval[0], 100 * interval[1],
+                        100.0 * losses[s] / games, wins[s] == 0 ? 0 : (double) turnsToWin[s] / wins[s]));
+                if (s > 0) {
+                    str.append(String.format("  vs %s %+6.2f%% +/- %.2f%% (unpaired +/- %.2f%%)", names[0],
+                            100 * difference(s), 100 * differenceHalfWidth(s), 100 * unpairedHalfWidth(s)));
+                }
+                str.append('\n');
+            }
+            return str.toString();
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        String mode = args.length > 1 ? args[1] : "n";
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+        String[] names = args.length > 5 ? args[5].split(",") : Strategies.NAMES;
+
+        Strategy[] strategies = new Strategy[names.length];
+        for (int s = 0; s < names.length; s++) {
+            if (names[s].equals("optimal")) {
+                OptimalPolicySolver solver = new OptimalPolicySolver(mode, GOLD_CAP, true);
+                solver.solve(maxTurns, ForkJoinPool.commonPool());
+                strategies[s] = Strategies.optimal(solver);
+            } else {
+                strategies[s] = Strategies.named(names[s]);
+            }
+        }
+
+        Tournament tournament = new Tournament(mode, maxTurns, threads, seed, strategies);
+        long start = System.nanoTime();
+        Results results = tournament.run(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("seed: " + seed);
+        System.out.print(results.infoString(names));
+        System.out.printf("%.2f s on %d threads%n", seconds, threads);
+    }
+}
@@ -1,4 +1,7 @@
+package treasurehunter;
+
 import java.awt.*;
+import java.util.SplittableRandom;
 
 /**
  * The Town Class is where it all happens.
@@ -16,9 +19,12 @@ public class Town {
     private boolean easy;
     private boolean dug;
     private boolean treasureDig;
-    private String treasure;
+    private Treasure treasure;
     private int reward;
     private boolean brawled;
+    private OutputSink output;
+    private SplittableRandom random;
+    private String info;
 
 
 
@@ -27,22 +33,18 @@ public class Town {
      *
      * @param shop The town's shoppe.
      * @param toughness The surrounding terrain.
+     * @param easy Whether items never break when crossing terrain.
+     * @param output Where the town's messages are shown.
+     * @param random The game's random number source; every chance event in town draws from it.
      */
-    public Town(Shop shop, double toughness, boolean easy) {
+    public Town(Shop shop, double toughness, boolean easy, OutputSink output, SplittableRandom random) {
         this.easy = easy;
+        this.output = output;
+        this.random = random;
         this.shop = shop;
-        this.terrain = getNewTerrain();
+        this.terrain = Terrain.random(random);
         dug = false;
-        int x = (int )(Math.random() * 4 + 1);
-        if (x == 1) {
-            treasure = "a crown";
-        } else if (x == 2) {
-            treasure = "a trophy";
-        } else if (x == 3) {
-            treasure = "a gem";
-        } else {
-            treasure = "dust";
-        }
+        treasure = randomTreasure(random);
 
         // the hunter gets set using the hunterArrives method, which
         // gets called from a client class
@@ -50,16 +52,50 @@ public class Town {
         printMessage = "";
 
         // higher toughness = more likely to be a tough town
-        toughTown = (Math.random() < toughness);
+        toughTown = (random.nextDouble() < toughness);
         dug = false;
         treasureDig = false;
         brawled = false;
     }
 
+    /**
+     * Rebuilds a town exactly as it was when a GameSnapshot was taken.
+     *
+     * @param shop The town's shoppe.
+     * @param terrain The surrounding terrain.
+     * @param treasure The treasure hidden in town.
+     * @param toughTown Whether the town is a tough one.
+     * @param easy Whether items never break when crossing terrain.
+     * @param dug Whether the hunter already dug for gold here.
+     * @param treasureDig Whether the hunter already hunted for treasure here.
+     * @param brawled Whether the hunter already brawled here.
+     * @param output Where the town's messages are shown.
+     * @param random The game's random number source.
+     */
+    Town(Shop shop, Terrain terrain, Treasure treasure, boolean toughTown, boolean easy,
+         boolean dug, boolean treasureDig, boolean brawled, OutputSink output, SplittableRandom random) {
+        this.shop = shop;
+        this.terrain = terrain;
+        this.treasure = treasure;
+        this.toughTown = toughTown;
+        this.easy = easy;
+        this.dug = dug;
+        this.treasureDig = treasureDig;
+        this.brawled = brawled;
+        this.output = output;
+        this.random = random;
+        hunter = null;
+        printMessage = "";
+    }
+
     public Terrain getTerrain() {
         return terrain;
     }
 
+    Shop getShop() {
+        return shop;
+    }
+
     public String getLatestNews() {
         return printMessage;
     }
@@ -87,15 +123,19 @@ public class Town {
     public boolean leaveTown() {
         boolean canLeaveTown = terrain.canCrossTerrain(hunter);
         if (canLeaveTown) {
-            String item = terrain.getNeededItem();
+            hunter.getTally().count(GameMetrics.Event.TOWN_LEFT);
+            Item item = terrain.getNeededKitItem();
             printMessage = "You used your " + item + " to cross the " + terrain.getTerrainName() + ".";
             if (checkItemBreak() && !easy) {
-                hunter.removeItemFromKit(item);
+                hunter.removeItem(item);
+                hunter.recordBrokenItem();
+                hunter.getTally().count(GameMetrics.Event.ITEM_BROKEN);
                 printMessage += "\nUnfortunately, you lost your " + item + ".";
             }
             return true;
         }
 
+        hunter.getTally().count(GameMetrics.Event.LEAVE_BLOCKED);
         printMessage = "You can't leave town, " + hunter.getHunterName() + ". You don't have a " + terrain.getNeededItem() + ".";
         return false;
     }
@@ -110,23 +150,26 @@ public class Town {
     }
 
     public void dig() {
-        if (!hunter.hasItemInKit("shovel")) {
-            TreasureHunter.window.addTextToWindow("You can't dig for gold without a shovel\n", Color.BLACK);
+        hunter.getTally().count(GameMetrics.Event.DIG);
+        if (!hunter.hasItem(Item.SHOVEL)) {
+            output.print("You can't dig for gold without a shovel\n", Color.BLACK);
             dug = false;
         }
         else if (dug) {
-            TreasureHunter.window.addTextToWindow("You already dug for gold in this town.", Color.RED);
+            output.print("You already dug for gold in this town.", Color.RED);
         }
-        else if ((Math.random() * 100) > 50.0) {
-            reward = (int) (Math.random() * 20) + 1;
-            TreasureHunter.window.addTextToWindow("You dug up " + reward + " gold" + "!\n", Color.BLACK);
-            TreasureHunter.window.addTextToWindow("You can no longer dig in this town.\n", Color.BLACK);
+        else if ((random.nextDouble() * 100) > 50.0) {
+            reward = random.nextInt(20) + 1;
+            output.print("You dug up " + reward + " gold" + "!\n", Color.BLACK);
+            output.print("You can no longer dig in this town.\n", Color.BLACK);
             hunter.changeGold(reward);
             dug = true;
+            hunter.getTally().count(GameMetrics.Event.DIG_GOLD);
         }
         else {
-            TreasureHunter.window.addTextToWindow("You dug but only found dirt.\n", Color.BLACK);
-            TreasureHunter.window.addTextToWindow("You can no longer dig in this town.\n", Color.BLACK);
+            hunter.getTally().count(GameMetrics.Event.DIG_DIRT);
+            output.print("You dug but only found dirt.\n", Color.BLACK);
+            output.print("You can no longer dig in this town.\n", Color.BLACK);
             dug = true;
         }
 
@@ -138,32 +181,39 @@ public class Town {
      * The tougher the town, the easier it is to find a fight, and the harder it is to win one.
      */
     public void lookForTrouble() {
+        hunter.getTally().count(GameMetrics.Event.TROUBLE_SOUGHT);
         double noTroubleChance;
         if (toughTown) {
             noTroubleChance = 0.66;
         } else {
             noTroubleChance = 0.33;
         }
-        if (Math.random() > noTroubleChance) {
+        if (random.nextDouble() > noTroubleChance) {
             printMessage = "You couldn't find any trouble";
+            hunter.getTally().count(GameMetrics.Event.NO_TROUBLE);
         }
-        else if (hunter.hasItemInKit("sword")) {
-            TreasureHunter.window.addTextToWindow("IS THAT A WHOLE SWORD, PLEASE STRANGER JUST TAKE MY MONEY\n", Color.BLACK);
-            int goldDiff = (int) (Math.random() * 10) + 1;
+        else if (hunter.hasItem(Item.SWORD)) {
+            output.print("IS THAT A WHOLE SWORD, PLEASE STRANGER JUST TAKE MY MONEY\n", Color.BLACK);
+            int goldDiff = random.nextInt(10) + 1;
             hunter.changeGold(goldDiff);
+            hunter.getTally().count(GameMetrics.Event.SWORD_PAYOFF);
         }
         else {
             printMessage = "You want trouble, stranger!  You got it!\nOof! Umph! Ow!\n";
-            int goldDiff = (int) (Math.random() * 10) + 1;
-            if (Math.random() > noTroubleChance) {
+            int goldDiff = random.nextInt(10) + 1;
+            if (random.nextDouble() > noTroubleChance) {
                 printMessage += Colors.RED + "Okay, stranger! You proved yer mettle. Here, take my gold." + Colors.RED;
                 printMessage += Colors.RED + "\nYou won the brawl and receive " + goldDiff + " gold" + "." + Colors.RED;
                 printMessage = "You won a brawl";
+                hunter.recordBrawl(true);
+                hunter.getTally().count(GameMetrics.Event.BRAWL_WON);
                 hunter.changeGold(goldDiff);
             } else {
                 printMessage += Colors.RED + "That'll teach you to go lookin' fer trouble in MY town! Now pay up!" + Colors.RED;
                 printMessage += Colors.RED + "\nYou lost the brawl and pay " + goldDiff +  " gold" + "." + Colors.RED;
                 printMessage = "You lost a brawl";
+                hunter.recordBrawl(false);
+                hunter.getTally().count(GameMetrics.Event.BRAWL_LOST);
                 if (hunter.gold < goldDiff) {
                     hunter.lose = true;
                     hunter.setGold(hunter.gold - goldDiff);
@@ -174,7 +224,7 @@ public class Town {
         }
     }
 
-    public String huntTreasure() {
+    public Treasure huntTreasure() {
         treasureDig = true;
         return treasure;
     }
@@ -187,29 +237,53 @@ public class Town {
         return treasureDig;
     }
 
+    boolean isToughTown() {
+        return toughTown;
+    }
+
+    boolean isEasy() {
+        return easy;
+    }
+
+    boolean getBrawled() {
+        return brawled;
+    }
+
+    /**
+     * @return The treasure hidden in town, without counting as a hunt.
+     */
+    Treasure getTreasure() {
+        return treasure;
+    }
+
+    /**
+     * The terrain never changes, so the text is built the first time it is needed and kept for the town's lifetime.
+     *
+     * @return A description of the town.
+     */
     public String infoString() {
-        return "This nice little town is surrounded by " + terrain.getTerrainName() + ".";
+        if (info == null) {
+            info = "This nice little town is surrounded by " + terrain.getTerrainName() + ".";
+        }
+        return info;
     }
 
     /**
-     * Determines the surrounding terrain for a town, and the item needed in order to cross that terrain.
+     * Picks the treasure hidden in a new town, each one being equally likely.
      *
-     * @return A Terrain object.
+     * @param random The random number source to draw from.
+     * @return The treasure.
      */
-    private Terrain getNewTerrain() {
-        double rnd = Math.random();
-        if (rnd < 1.0/6) {
-            return new Terrain(Colors.CYAN + "Marsh" + Colors.RESET, "Boots");
-        } else if (rnd < 2.0/6) {
-            return new Terrain(Colors.CYAN + "Mountains" + Colors.RESET, "Rope");
-        } else if (rnd < 3.0/6) {
-            return new Terrain(Colors.CYAN + "Ocean" + Colors.RESET, "Boat");
-        } else if (rnd < 4.0/6) {
-            return new Terrain(Colors.CYAN + "Plains" + Colors.RESET, "Horse");
-        } else if (rnd < 5.0/6) {
-            return new Terrain(Colors.CYAN + "Desert" + Colors.RESET, "Water");
+    static Treasure randomTreasure(SplittableRandom random) {
+        int x = random.nextInt(4) + 1;
+        if (x == 1) {
+            return Treasure.CROWN;
+        } else if (x == 2) {
+            return Treasure.TROPHY;
+        } else if (x == 3) {
+            return Treasure.GEM;
         } else {
-            return new Terrain(Colors.CYAN + "Jungle" + Colors.RESET, "Machete");
+            return Treasure.DUST;
         }
     }
 
@@ -219,7 +293,7 @@ public class Town {
      * @return true if the item broke.
      */
     private boolean checkItemBreak() {
-        double rand = Math.random();
+        double rand = random.nextDouble();
         return (rand < 0.5);
     }
 }
\ No newline at end of file
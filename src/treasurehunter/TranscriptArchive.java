@@ -0,0 +1,637 @@
+package treasurehunter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the output of every server session, so that what a player saw can be looked up long after they left.<p>
+ * Transcripts are appended to the newest segment, a file of fixed size mapped into memory. Each append is one
+ * record (length, session id, offset of the session's next record, text), and a session's records are chained
+ * together so reading them never scans the segment. The length is written last, so a record is either whole or
+ * not there at all after a crash of the process. Opening the archive scans the newest segment and rebuilds its
+ * chains.<p>
+ * When a segment is full, a new one is started and the full one is packed on a background thread: each session's
+ * text is deflated into one block, followed by an index of (session id, offset, packed length, length) sorted by
+ * session id. Finding a session in a packed segment is a binary search of its memory-mapped index, and streaming
+ * it inflates just its block, so lookups take milliseconds however many gigabytes the archive holds and never
+ * read a whole file onto the heap.<p>
+ * Usage: TranscriptArchive directory [sessionId]
+ * lists the segments, or writes one session's transcript to standard output.
+ */
+
+public class TranscriptArchive implements Closeable {
+    // constants
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    private static final int LOG_MAGIC = 0x54484c31;      // "THL1"
+    private static final int PACKED_MAGIC = 0x54485a31;   // "THZ1"
+    private static final int LOG_HEADER = 8;
+    private static final int RECORD_HEADER = 16;          // length, session id, next record
+    private static final int INDEX_ENTRY = 24;            // session id, offset, packed length, length
+    private static final int FOOTER = 16;                 // index offset, entry count, magic
+    private static final String LOG_SUFFIX = ".log";
+    private static final String PACKED_SUFFIX = ".z";
+    private static final String PREFIX = "transcripts-";
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    // instance variables
+    private Path directory;
+    private int segmentSize;
+    private ReentrantLock lock;   // guards appends and the chains of unpacked segments
+    private volatile Segment[] segments;   // oldest first; the last one is being appended to
+    private LogSegment active;
+    private volatile long lastSessionId;
+    private ExecutorService packer;
+    private boolean closed;   // guarded by lock
+
+    /**
+     * Opens an archive, creating the directory if needed, and packs any full segment left unpacked.
+     *
+     * @param directory Where the segments are kept.
+     * @param segmentSize The size of each segment file in bytes.
+     */
+    public TranscriptArchive(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < LOG_HEADER + 2 * RECORD_HEADER) {
+            throw new IllegalArgumentException("Segments of " + segmentSize + " bytes are too small");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        lock = new ReentrantLock();
+        lastSessionId = -1;
+        packer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("transcript-packer").daemon().factory());
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends text a session showed its player. Text appended after the archive is closed is dropped.
+     *
+     * @param sessionId The session.
+     * @param text The text.
+     */
+    public void append(long sessionId, CharSequence text) {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            int offset = 0;
+            while (offset < bytes.length) {
+                int room = active.room();
+                if (room < bytes.length - offset && !active.isEmpty()) {
+                    roll();
+                    continue;
+                }
+                // text too big for a whole segment is split across segments
+                int length = Math.min(room, bytes.length - offset);
+                active.write(sessionId, bytes, offset, length);
+                offset += length;
+            }
+            lastSessionId = Math.max(lastSessionId, sessionId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything recorded for a session to a stream, oldest first.
+     *
+     * @param sessionId The session.
+     * @param out Where the text is written, as UTF-8.
+     * @return false if nothing was recorded for the session.
+     */
+    public boolean streamTranscript(long sessionId, OutputStream out) throws IOException {
+        boolean found = false;
+        for (Segment segment : segments) {
+            found |= segment.streamTo(sessionId, out);
+        }
+        return found;
+    }
+
+    /**
+     * @return The highest session id recorded, or -1 if the archive is empty.
+     */
+    public long getLastSessionId() {
+        return lastSessionId;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * @return One line per segment: its file, its size on disk and the number of sessions in it.
+     */
+    public String infoString() {
+        StringBuilder str = new StringBuilder();
+        for (Segment segment : segments) {
+            str.append(segment.infoString()).append('\n');
+        }
+        return str.toString();
+    }
+
+    /**
+     * Waits for segments being packed and writes the newest segment out.
+     */
+    public void close() throws IOException {
+        packer.shutdown();
+        try {
+            packer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            closed = true;
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> logs = new ArrayList<>();
+        List<Long> packed = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // a segment whose packing was interrupted; its log is still there
+                    Files.delete(file);
+                } else if (name.endsWith(LOG_SUFFIX)) {
+                    logs.add(numberOf(name, LOG_SUFFIX));
+                } else if (name.endsWith(PACKED_SUFFIX)) {
+                    packed.add(numberOf(name, PACKED_SUFFIX));
+                }
+            }
+        }
+        List<Segment> found = new ArrayList<>();
+        List<LogSegment> unpacked = new ArrayList<>();
+        for (long number : packed) {
+            found.add(new PackedSegment(number, pathOf(number, PACKED_SUFFIX)));
+        }
+        for (long number : logs) {
+            if (packed.contains(number)) {
+                // packed, but the log was not deleted yet
+                Files.delete(pathOf(number, LOG_SUFFIX));
+            } else {
+                LogSegment log = new LogSegment(number, false);
+                found.add(log);
+                unpacked.add(log);
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.number, b.number));
+        for (Segment segment : found) {
+            lastSessionId = Math.max(lastSessionId, segment.maxSessionId());
+        }
+        Segment newest = found.isEmpty() ? null : found.get(found.size() - 1);
+        if (newest instanceof LogSegment) {
+            active = (LogSegment) newest;
+            unpacked.remove(active);
+        } else {
+            active = new LogSegment(newest == null ? 0 : newest.number + 1, true);
+            found.add(active);
+        }
+        segments = found.toArray(new Segment[0]);
+        for (LogSegment log : unpacked) {
+            packer.execute(() -> pack(log));
+        }
+    }
+
+    /**
+     * Starts a new segment and has the full one packed. Called with the lock held.
+     */
+    private void roll() throws IOException {
+        LogSegment full = active;
+        full.force();
+        active = new LogSegment(full.number + 1, true);
+        Segment[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[grown.length - 1] = active;
+        segments = grown;
+        packer.execute(() -> pack(full));
+    }
+
+    /**
+     * Deflates each session's records in a full segment into one block, writes the index after them,
+     * and swaps the packed segment in for the log.
+     */
+    private void pack(LogSegment log) {
+        Path packedFile = pathOf(log.number, PACKED_SUFFIX);
+        Path tmp = directory.resolve(packedFile.getFileName() + ".tmp");
+        try {
+            long[] ids = log.sessionIds();
+            Arrays.sort(ids);
+            ByteBuffer index = ByteBuffer.allocate(ids.length * INDEX_ENTRY + FOOTER);
+            Deflater deflater = new Deflater();
+            ByteBuffer out = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long offset = 0;
+                for (long id : ids) {
+                    deflater.reset();
+                    long packedLength = 0;
+                    long length = 0;
+                    for (ByteBuffer record : log.records(id)) {
+                        length += record.remaining();
+                        deflater.setInput(record);
+                        while (!deflater.needsInput()) {
+                            packedLength += deflateTo(deflater, out, channel);
+                        }
+                    }
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        packedLength += deflateTo(deflater, out, channel);
+                    }
+                    index.putLong(id).putLong(offset).putInt((int) packedLength).putInt((int) length);
+                    offset += packedLength;
+                }
+                index.putLong(offset).putInt(ids.length).putInt(PACKED_MAGIC);
+                index.flip();
+                while (index.hasRemaining()) {
+                    channel.write(index);
+                }
+                channel.force(true);
+            } finally {
+                deflater.end();
+            }
+            Files.move(tmp, packedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            PackedSegment packed = new PackedSegment(log.number, packedFile);
+            lock.lock();
+            try {
+                Segment[] current = segments.clone();
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == log) {
+                        current[i] = packed;
+                    }
+                }
+                segments = current;
+            } finally {
+                lock.unlock();
+            }
+            log.close();
+            Files.delete(log.file);
+        } catch (IOException e) {
+            // the log stays in use and is packed again the next time the archive is opened
+            System.err.println("Could not pack " + log.file + ": " + e);
+        }
+    }
+
+    private static int deflateTo(Deflater deflater, ByteBuffer out, FileChannel channel) throws IOException {
+        out.clear();
+        int written = deflater.deflate(out);
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        return written;
+    }
+
+    private Path pathOf(long number, String suffix) {
+        return directory.resolve(String.format("%s%08d%s", PREFIX, number, suffix));
+    }
+
+    private static long numberOf(String name, String suffix) {
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length()));
+    }
+
+    private static void copy(ByteBuffer source, OutputStream out, byte[] buffer) throws IOException {
+        while (source.hasRemaining()) {
+            int length = Math.min(buffer.length, source.remaining());
+            source.get(buffer, 0, length);
+            out.write(buffer, 0, length);
+        }
+    }
+
+    /**
+     * One file of the archive.
+     */
+    private abstract static class Segment {
+        // instance variables
+        final long number;
+
+        Segment(long number) {
+            this.number = number;
+        }
+
+        /**
+         * @return false if the segment holds nothing for the session.
+         */
+        abstract boolean streamTo(long sessionId, OutputStream out) throws IOException;
+
+        abstract long maxSessionId();
+
+        abstract String infoString();
+
+        abstract void close() throws IOException;
+    }
+
+    /**
+     * A segment still in its appendable form: a mapped file of chained records.
+     */
+    private final class LogSegment extends Segment {
+        // instance variables
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private final HashMap<Long, Chain> chains;
+        private int position;
+
+        /**
+         * @param create true to start a new log, false to reopen the one on disk.
+         */
+        LogSegment(long number, boolean create) throws IOException {
+            super(number);
+            file = pathOf(number, LOG_SUFFIX);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            int size = create ? segmentSize : (int) channel.size();
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            chains = new HashMap<>();
+            if (create) {
+                map.putInt(0, LOG_MAGIC);
+                map.putInt(4, size);
+                position = LOG_HEADER;
+            } else {
+                if (map.getInt(0) != LOG_MAGIC) {
+                    throw new IOException(file + " is not a transcript segment");
+                }
+                scan();
+            }
+        }
+
+        /**
+         * Rebuilds the chains of a reopened log, stopping at the first record that was never finished,
+         * and relinks any record whose predecessor was not yet pointed at it.
+         */
+        private void scan() {
+            position = LOG_HEADER;
+            while (position + RECORD_HEADER <= map.capacity()) {
+                int length = map.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER + length > map.capacity()) {
+                    break;
+                }
+                link(map.getLong(position + 4), position);
+                position += RECORD_HEADER + length;
+            }
+            if (position + 4 <= map.capacity()) {
+                map.putInt(position, 0);
+            }
+        }
+
+        boolean isEmpty() {
+            return position == LOG_HEADER;
+        }
+
+        /**
+         * @return The most text the next record can hold.
+         */
+        int room() {
+            return Math.max(0, map.capacity() - position - RECORD_HEADER - 4);
+        }
+
+        void write(long sessionId, byte[] bytes, int offset, int length) {
+            int at = position;
+            map.putLong(at + 4, sessionId);
+            map.putInt(at + 12, 0);
+            map.put(at + RECORD_HEADER, bytes, offset, length);
+            // the slot after the record ends the scan until another record is written there
+            map.putInt(at + RECORD_HEADER + length, 0);
+            map.putInt(at, length);
+            link(sessionId, at);
+            position = at + RECORD_HEADER + length;
+        }
+
+        private void link(long sessionId, int at) {
+            Chain chain = chains.get(sessionId);
+            if (chain == null) {
+                chain = new Chain(at);
+                chains.put(sessionId, chain);
+            } else {
+                map.putInt(chain.last + 12, at);
+            }
+            chain.last = at;
+            chain.records++;
+        }
+
+        long[] sessionIds() {
+            lock.lock();
+            try {
+                long[] ids = new long[chains.size()];
+                int i = 0;
+                for (long id : chains.keySet()) {
+                    ids[i++] = id;
+                }
+                return ids;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes a consistent view of a session's records under the lock; the records themselves never change.
+         *
+         * @return Read-only views of each record's text, oldest first.
+         */
+        ByteBuffer[] records(long sessionId) {
+            lock.lock();
+            try {
+                Chain chain = chains.get(sessionId);
+                if (chain == null) {
+                    return new ByteBuffer[0];
+                }
+                ByteBuffer[] records = new ByteBuffer[chain.records];
+                int at = chain.first;
+                for (int i = 0; i < records.length; i++) {
+                    records[i] = map.slice(at + RECORD_HEADER, map.getInt(at)).asReadOnlyBuffer();
+                    at = map.getInt(at + 12);
+                }
+                return records;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean streamTo(long sessionId, OutputStream out) throws IOException {
+            ByteBuffer[] records = records(sessionId);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            for (ByteBuffer record : records) {
+                copy(record, out, buffer);
+            }
+            return records.length > 0;
+        }
+
+        long maxSessionId() {
+            long max = -1;
+            for (long id : sessionIds()) {
+                max = Math.max(max, id);
+            }
+            return max;
+        }
+
+        void force() {
+            map.force();
+        }
+
+        String infoString() {
+            lock.lock();
+            try {
+                return file.getFileName() + ": " + position + " of " + map.capacity() + " bytes used, "
+                        + chains.size() + " sessions";
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() throws IOException {
+            map.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Where a session's records in a log segment start and end.
+     */
+    private static final class Chain {
+        // instance variables
+        private final int first;
+        private int last;
+        private int records;
+
+        Chain(int first) {
+            this.first = first;
+            last = first;
+        }
+    }
+
+    /**
+     * A full segment in its packed form: a deflated block per session, then the sorted index, then a footer.
+     */
+    private static final class PackedSegment extends Segment {
+        // instance variables
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer index;
+        private final int entries;
+
+        PackedSegment(long number, Path file) throws IOException {
+            super(number);
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+            while (footer.hasRemaining() && channel.read(footer, size - FOOTER + footer.position()) > 0) {
+                // read the whole footer
+            }
+            footer.flip();
+            long indexOffset = footer.getLong();
+            entries = footer.getInt();
+            if (size < FOOTER || footer.getInt() != PACKED_MAGIC) {
+                channel.close();
+                throw new IOException(file + " is not a packed transcript segment");
+            }
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) entries * INDEX_ENTRY);
+        }
+
+        /**
+         * @return The index entry of the session, or -1.
+         */
+        private int find(long sessionId) {
+            int low = 0;
+            int high = entries - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long id = index.getLong(middle * INDEX_ENTRY);
+                if (id < sessionId) {
+                    low = middle + 1;
+                } else if (id > sessionId) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        boolean streamTo(long sessionId, OutputStream out) throws IOException {
+            int entry = find(sessionId);
+            if (entry < 0) {
+                return false;
+            }
+            long offset = index.getLong(entry * INDEX_ENTRY + 8);
+            int packedLength = index.getInt(entry * INDEX_ENTRY + 16);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(channel.map(FileChannel.MapMode.READ_ONLY, offset, packedLength));
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                while (!inflater.finished()) {
+                    int length = inflater.inflate(buffer);
+                    if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException(file + " is truncated in session " + sessionId);
+                    }
+                    out.write(buffer, 0, length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(file + " is corrupt in session " + sessionId, e);
+            } finally {
+                inflater.end();
+            }
+            return true;
+        }
+
+        long maxSessionId() {
+            return entries == 0 ? -1 : index.getLong((entries - 1) * INDEX_ENTRY);
+        }
+
+        String infoString() {
+            try {
+                return file.getFileName() + ": " + channel.size() + " bytes packed, " + entries + " sessions";
+            } catch (IOException e) {
+                return file.getFileName() + ": " + e.getMessage();
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (TranscriptArchive archive = new TranscriptArchive(Path.of(args[0]), DEFAULT_SEGMENT_SIZE)) {
+            if (args.length < 2) {
+                System.out.print(archive.infoString());
+                return;
+            }
+            long sessionId = Long.parseLong(args[1]);
+            if (!archive.streamTranscript(sessionId, System.out)) {
+                System.err.println("No transcript for session " + sessionId);
+            }
+            System.out.flush();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package treasurehunter;
+
+/**
+ * The things that can be found when hunting for treasure in a town.<p>
+ * Dust is worthless and is never collected; the other three each own one bit of a hunter's treasure mask.
+ */
+
+public enum Treasure {
+    CROWN("a crown", true),
+    TROPHY("a trophy", true),
+    GEM("a gem", true),
+    DUST("dust", false);
+
+    // constants
+    public static final int ALL_TREASURES = CROWN.mask | TROPHY.mask | GEM.mask;
+    private static final Treasure[] VALUES = values();
+
+    // instance variables
+    private final String treasureName;
+    private final int mask;
+
+    Treasure(String treasureName, boolean collectible) {
+        this.treasureName = treasureName;
+        // dust has no bit, so it can never count towards a win
+        this.mask = collectible ? 1 << ordinal() : 0;
+    }
+
+    public String getTreasureName() {
+        return treasureName;
+    }
+
+    /**
+     * @return The bit this treasure occupies in a hunter's collection, or 0 for dust.
+     */
+    public int mask() {
+        return mask;
+    }
+
+    public boolean isCollectible() {
+        return mask != 0;
+    }
+
+    /**
+     * Looks up a treasure by its printed name, e.g. "a gem".
+     *
+     * @param name The treasure's name.
+     * @return The matching treasure, or null if there is none with that name.
+     */
+    public static Treasure fromName(String name) {
+        for (Treasure treasure : VALUES) {
+            if (treasure.treasureName.equals(name)) {
+                return treasure;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return treasureName;
+    }
+}
@@ -0,0 +1,446 @@
+package treasurehunter;
+
+import java.awt.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class is responsible for controlling the Treasure Hunter game.<p>
+ * It handles the display of the menu and the processing of the player's choices.<p>
+ * It handles all the display based on the messages it receives from the Town object. <p>
+ *
+ * This code has been adapted from Ivan Turner's original program -- thank you Mr. Turner!
+ */
+
+public class TreasureHunter {
+    // constants
+    private static final String MENU = "(B)uy something at the shop.\n"
+            + "(S)ell something at the shop.\n"
+            + "(E)xplore surrounding terrain.\n"
+            + "(M)ove on to a different town.\n"
+            + "(L)ook for trouble!\n"
+            + "(D)ig for gold.\n"
+            + "(H)unt for treasure\n"
+            + "Give up the hunt and e(X)it.\n"
+            + "\n"
+            + "What's your next move? \n";
+    private static final Command[] COMMANDS = buildCommands();
+
+    // instance variables
+    private CommandSource input;
+    private OutputSink window;
+    private SplittableRandom random;
+    private Town currentTown;
+    private Hunter hunter;
+    private boolean hardMode;
+    private boolean easyMode;
+    private boolean testMode;
+    private boolean samurai;
+    private int turns;
+    private int townsVisited;
+    private World world;
+    private Market market;
+    private long townId;
+    private int sampleOffset;     // shifts which turns are timed, so games shorter than the sample are timed too
+    private boolean timingCommand;
+    private long inputNanos;      // time the command being timed spent waiting for its player
+
+    /**
+     * Constructs the Treasure Hunter game, reading from the console and showing output in a window.
+     */
+    public TreasureHunter() {
+        this(new OutputWindow());
+    }
+
+    private TreasureHunter(OutputWindow window) {
+        this(window.flushBefore(LineReader.standardInput(false)), window, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a Treasure Hunter game that reads its commands from the given source
+     * and shows everything it prints on the given sink.<p>
+     * All chance events draw from the given random source, so two games built from
+     * generators with the same seed and fed the same commands play out identically.
+     *
+     * @param input Where the player's commands come from.
+     * @param window Where the game's text is shown.
+     * @param random The random number source owned by this game.
+     */
+    public TreasureHunter(CommandSource input, OutputSink window, SplittableRandom random) {
+        this(input, window, random, null);
+    }
+
+    /**
+     * Constructs a Treasure Hunter game that travels around a persistent world instead of
+     * making up a fresh town on every move.<p>
+     * The hunter starts in town 0 and each move takes one of the current town's roads at random.
+     *
+     * @param input Where the player's commands come from.
+     * @param window Where the game's text is shown.
+     * @param random The random number source owned by this game.
+     * @param world The world to travel around, or null for a fresh town on every move.
+     */
+    public TreasureHunter(CommandSource input, OutputSink window, SplittableRandom random, World world) {
+        this(input, window, random, world, null);
+    }
+
+    /**
+     * Constructs a Treasure Hunter game whose shops trade through a market shared with other games.<p>
+     * Prices then depend on what other players did, so the game is no longer determined by its seed and commands.
+     *
+     * @param input Where the player's commands come from.
+     * @param window Where the game's text is shown.
+     * @param random The random number source owned by this game.
+     * @param world The world to travel around, or null for a fresh town on every move.
+     * @param market The market every shop trades through, or null for fixed prices.
+     */
+    public TreasureHunter(CommandSource input, OutputSink window, SplittableRandom random, World world,
+                          Market market) {
+        this.input = input;
+        this.window = window;
+        this.random = random;
+        this.world = world;
+        this.market = market;
+        townId = 0;
+        // drawn outside the game's random source, so the game itself is unchanged
+        sampleOffset = ThreadLocalRandom.current().nextInt(GameMetrics.TIMING_SAMPLE);
+        timingCommand = false;
+        inputNanos = 0;
+        // these will be initialized in the play method
+        currentTown = null;
+        hunter = null;
+        hardMode = false;
+        easyMode = false;
+        testMode = false;
+        samurai = false;
+        turns = 0;
+        townsVisited = 0;
+    }
+
+    /**
+     * Starts the game and returns once the hunter has won, lost or exited.
+     */
+    public void play() {
+        window.clear();
+        welcomePlayer();
+        enterTown();
+        showMenu();
+    }
+
+    /**
+     * Continues a game that was restored from a GameSnapshot, returning once the hunter has won, lost or exited.
+     */
+    public void resume() {
+        currentTown.hunterArrives(hunter);
+        showMenu();
+    }
+
+    public Hunter getHunter() {
+        return hunter;
+    }
+
+    /**
+     * @return The number of menu choices processed so far.
+     */
+    public int getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return The number of towns the hunter has been in, counting the current one.
+     */
+    public int getTownsVisited() {
+        return townsVisited;
+    }
+
+    /**
+     * @return The id of the current town in the game's world, or 0 when the game has no world.
+     */
+    long getCurrentTownId() {
+        return townId;
+    }
+
+    Town getCurrentTown() {
+        return currentTown;
+    }
+
+    boolean isHardMode() {
+        return hardMode;
+    }
+
+    boolean isEasyMode() {
+        return easyMode;
+    }
+
+    boolean isTestMode() {
+        return testMode;
+    }
+
+    boolean isSamurai() {
+        return samurai;
+    }
+
+    /**
+     * Puts a game back into the state recorded by a GameSnapshot.
+     * The town is rebuilt with a shop that matches the restored difficulty, and in a game with a World
+     * the next move leaves from the town the game was saved in.
+     */
+    void restore(Hunter hunter, boolean hardMode, boolean easyMode, boolean testMode, boolean samurai, int turns,
+                 long townId, Terrain terrain, Treasure treasure, boolean toughTown, boolean dug, boolean treasureDig,
+                 boolean brawled) {
+        this.hunter = hunter;
+        this.townId = townId;
+        this.hardMode = hardMode;
+        this.easyMode = easyMode;
+        this.testMode = testMode;
+        this.samurai = samurai;
+        this.turns = turns;
+        townsVisited = 1;
+        Shop shop = new Shop(markdown(hardMode, easyMode), samurai, this::readAnswer, window, market);
+        currentTown = new Town(shop, terrain, treasure, toughTown, easyMode, dug, treasureDig, brawled, window, random);
+    }
+
+    /**
+     * Creates a hunter object at the beginning of the game and populates the class member variable with it.
+     */
+    private void welcomePlayer() {
+        window.print("Welcome to " + "TREASURE HUNTER" + "!\n", Color.BLACK);
+        window.print("Going hunting for the big treasure, eh?\n", Color.BLACK);
+        window.print("What's your name, Hunter? \n", Color.BLACK);
+        String name = input.nextLine().toLowerCase();
+
+        // set hunter instance variable
+        hunter = new Hunter(name, 20);
+
+        window.print("Mode (e)asy, (n)ormal, or (h)ard? \n", Color.BLACK);
+        String dif = input.nextLine().toLowerCase();
+        if (dif.equals("h")) {
+            hardMode = true;
+        } else if (dif.equals("test")) {
+            testMode = true;
+            hunter = new Hunter(name, 100);
+            hunter.addItem("water");
+            hunter.addItem("rope");
+            hunter.addItem("machete");
+            hunter.addItem("horse");
+            hunter.addItem("boat");
+            hunter.addItem("boots");
+            hunter.addItem("shovel");
+            easyMode = false;
+            hardMode = false;
+        }
+        else if (dif.equals("e")) {
+            easyMode = true;
+            hunter = new Hunter(name, 40);
+        }
+        else if (dif.equals("s")) {
+            samurai = true;
+            hunter.makeSamurai();
+        }
+        else if (!dif.equals("n")) {
+            window.print("Invalid input, difficulty set to normal.\n", Color.BLACK);
+        }
+    }
+
+    /**
+     * Creates a new town, or travels along a road to the next one in the game's world, and adds the Hunter to it.
+     */
+    private void enterTown() {
+        double markdown = markdown(hardMode, easyMode);
+        double toughness = toughness(hardMode, easyMode);
+
+        // note that we don't need to access the Shop object
+        // outside of this method, so it isn't necessary to store it as an instance
+        // variable; we can leave it as a local variable
+        Shop shop = new Shop(markdown, samurai, this::readAnswer, window, market);
+
+
+        // creating the new Town -- which we need to store as an instance
+        // variable in this class, since we need to access the Town
+        // object in other methods of this class
+        if (world == null) {
+            currentTown = new Town(shop, toughness, easyMode, window, random);
+        } else {
+            if (currentTown != null) {
+                world.leave(townId, currentTown);
+                townId = world.neighbour(townId, random.nextInt(World.ROADS));
+            }
+            currentTown = world.visit(townId, shop, toughness, easyMode, window, random);
+        }
+        townsVisited++;
+
+        // calling the hunterArrives method, which takes the Hunter
+        // as a parameter; note this also could have been done in the
+        // constructor for Town, but this illustrates another way to associate
+        // an object with an object of a different class
+        currentTown.hunterArrives(hunter);
+    }
+
+    /**
+     * @param hardMode Whether the game is in hard mode.
+     * @param easyMode Whether the game is in easy mode.
+     * @return The share of an item's price the shops pay back, which depends on the difficulty.
+     */
+    static double markdown(boolean hardMode, boolean easyMode) {
+        if (hardMode) {
+            // in hard mode, you get less money back when you sell items
+            return 0.25;
+        }
+        if (easyMode) {
+            return 1;
+        }
+        return 0.5;
+    }
+
+    /**
+     * @param hardMode Whether the game is in hard mode.
+     * @param easyMode Whether the game is in easy mode.
+     * @return The chance that a new town is a tough one, which depends on the difficulty.
+     */
+    static double toughness(boolean hardMode, boolean easyMode) {
+        if (hardMode) {
+            // and the town is "tougher"
+            return 0.75;
+        }
+        if (easyMode) {
+            return 0.2;
+        }
+        return 0.4;
+    }
+
+    /**
+     * Displays the menu and receives the choice from the user.<p>
+     * The choice is sent to the processChoice() method for parsing.<p>
+     * This method will loop until the user chooses to exit.
+     */
+    private void showMenu() {
+        String choice = "";
+        while (!choice.equals("x") && !hunter.lose && !hunter.win) {
+            showStatus();
+            choice = input.nextLine().toLowerCase();
+            turns++;
+            processChoice(choice);
+        }
+        if (hunter.lose) {
+            window.print( "YOU LOSE\nYOU RAN OUT OF GOLD\n", Color.BLACK);
+        }
+        hunter.getTally().flush();
+    }
+
+    /**
+     * Prints the latest news, the hunter's status and the menu of choices.<p>
+     * Nothing is built when the output is being discarded. Otherwise the hunter's and town's text come from
+     * their caches and the menu is a constant, so an unchanged status is printed without building any strings.
+     */
+    private void showStatus() {
+        if (window.isDiscarding()) {
+            return;
+        }
+        window.print("\n", Color.BLACK);
+        window.print(currentTown.getLatestNews(), Color.BLACK);
+        window.print("***\n", Color.BLACK);
+        window.print(hunter.infoString(), Color.BLACK);
+        window.print(currentTown.infoString(), Color.BLACK);
+        window.print(MENU, Color.BLACK);
+    }
+
+    /**
+     * Takes the choice received from the menu and calls the appropriate method to carry out the instructions.<p>
+     * Every command is a single character, so the choice is looked up directly in the COMMANDS table.
+     * A sample of the turns is timed for GameMetrics, leaving out any time the command spends waiting for the
+     * player's answers, and the game's tally is flushed after each of them.
+     * @param choice The action to process.
+     */
+    private void processChoice(String choice) {
+        GameMetrics.Tally tally = hunter.getTally();
+        tally.count(GameMetrics.Event.COMMAND);
+        boolean sampled = GameMetrics.isSampled(turns + sampleOffset);
+        long start = 0;
+        if (sampled) {
+            timingCommand = true;
+            inputNanos = 0;
+            start = System.nanoTime();
+        }
+        Command command = null;
+        if (choice.length() == 1 && choice.charAt(0) < COMMANDS.length) {
+            command = COMMANDS[choice.charAt(0)];
+        }
+        if (command == null) {
+            tally.count(GameMetrics.Event.INVALID_COMMAND);
+            window.print("Yikes! That's an invalid option! Try again.\n", Color.BLACK);
+        } else {
+            command.run(this);
+        }
+        if (sampled) {
+            GameMetrics.recordCommand(choice, System.nanoTime() - start - inputNanos);
+            timingCommand = false;
+            tally.flush();
+        }
+    }
+
+    /**
+     * Reads an answer to a shop's question, adding the wait to inputNanos while a command is being timed.
+     */
+    private String readAnswer() {
+        if (!timingCommand) {
+            return input.nextLine();
+        }
+        long start = System.nanoTime();
+        String line = input.nextLine();
+        inputNanos += System.nanoTime() - start;
+        return line;
+    }
+
+    private void moveOn() {
+        if (currentTown.leaveTown()) {
+            // This town is going away so print its news ahead of time.
+            window.print(currentTown.getLatestNews(), Color.BLACK);
+            enterTown();
+        }
+    }
+
+    private void huntForTreasure() {
+        if (currentTown.getTreasureDig()) {
+            window.print( "You have already searched this town" , Color.BLACK);
+        } else {
+            Treasure treasure = currentTown.huntTreasure();
+            window.print( "You found " +  treasure +  "!" , Color.BLACK);
+            if (hunter.hasTreasure(treasure)) {
+                window.print( "You have already found this item (will not be collected)" , Color.BLACK);
+            } else {
+                if (treasure != Treasure.DUST) {
+                    hunter.addTreasure(treasure);
+                    if (hunter.hasAllTreasures()) {
+                        window.print("Congratulations, you have found the last of the three treasures, you win!\n", Color.BLACK);
+                        hunter.win = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the table of menu commands, indexed by the command's character.
+     *
+     * @return The table, with null for every character that is not a command.
+     */
+    private static Command[] buildCommands() {
+        Command[] commands = new Command[128];
+        commands['b'] = game -> game.currentTown.enterShop("b");
+        commands['s'] = game -> game.currentTown.enterShop("s");
+        commands['e'] = game -> game.window.print(game.currentTown.getTerrain().infoString(), Color.BLACK);
+        commands['m'] = TreasureHunter::moveOn;
+        commands['l'] = game -> game.currentTown.lookForTrouble();
+        commands['h'] = TreasureHunter::huntForTreasure;
+        commands['x'] = game -> game.window.print("Fare thee well, " + game.hunter.getHunterName() + "!\n", Color.BLACK);
+        commands['d'] = game -> game.currentTown.dig();
+        return commands;
+    }
+
+    /**
+     * One menu command, carried out on the game it was chosen in.
+     */
+    private interface Command {
+        void run(TreasureHunter game);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package treasurehunter;
+
+import java.awt.GraphicsEnvironment;
+import java.util.SplittableRandom;
+
+public class TreasureHunterRunner {
+    // constants
+    private static final long WORLD_SIZE = 1_000_000;
+    private static final int WORLD_CACHE_SIZE = 256;
+
+    /**
+     * Starts a game in a window, or in the terminal when run with --terminal or on a machine without a display.<p>
+     * With --world [seed] the hunter travels around a persistent world of a million towns instead of
+     * finding a fresh town on every move.
+     */
+    public static void main(String[] args) {
+        boolean terminal = GraphicsEnvironment.isHeadless();
+        World world = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--terminal")) {
+                terminal = true;
+            } else if (args[i].equals("--world")) {
+                long seed = System.nanoTime();
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    seed = Long.parseLong(args[++i]);
+                }
+                world = new World(seed, WORLD_SIZE, WORLD_CACHE_SIZE);
+            }
+        }
+        CommandSource input = LineReader.standardInput(false);
+        OutputSink output;
+        if (terminal) {
+            output = new AnsiTerminalSink();
+        } else {
+            OutputWindow window = new OutputWindow();
+            input = window.flushBefore(input);
+            output = window;
+        }
+        TreasureHunter game = new TreasureHunter(input, output, new SplittableRandom(), world);
+        game.play();
+    }
+}
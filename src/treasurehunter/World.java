@@ -0,0 +1,380 @@
+package treasurehunter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A fixed world of numbered towns that a hunter can travel around and come back to.<p>
+ * Nothing about a town is stored until it is visited: its terrain, treasure, toughness and roads are all drawn from
+ * a random source seeded with (world seed, town id), so the same town always comes out the same way,
+ * however large the world is.<p>
+ * Each town has three roads, which cross the town's terrain: east to the next town, west to the previous one,
+ * and a shortcut to a town anywhere in the world.<p>
+ * Towns the hunter has changed (dug, hunted or brawled in) are kept in a small LRU cache.
+ * When one falls out of the cache, only its changes are kept, as one byte in a primitive table.
+ * That table holds at most MAX_MEMORY_DELTAS towns; when it fills up, its towns are written out to a
+ * memory-mapped hash table in a temporary file and it starts again empty. So the heap holds a bounded amount
+ * however large the world is and however many of its towns are changed, and the rest lives in the page cache.
+ */
+
+public class World {
+    // constants
+    public static final int ROADS = 3;
+    private static final int DUG = 1;
+    private static final int TREASURE_DUG = 2;
+    private static final int BRAWLED = 4;
+    private static final int MAX_MEMORY_DELTAS = 1 << 16;
+
+    // instance variables
+    private long seed;
+    private long size;
+    private LinkedHashMap<Long, Town> cache;
+    private DeltaTable deltas;
+    private DeltaFile spilled;   // created when the table first fills up
+
+    /**
+     * @param seed The seed every town in the world is generated from.
+     * @param size The number of towns in the world.
+     * @param cacheSize The number of changed towns kept whole before only their changes are kept.
+     */
+    public World(long seed, long size, int cacheSize) {
+        if (size < 1 || size > DeltaFile.MAX_TOWN_ID) {
+            throw new IllegalArgumentException("A world needs between 1 and " + DeltaFile.MAX_TOWN_ID + " towns");
+        }
+        this.seed = seed;
+        this.size = size;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Town> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                putDelta(eldest.getKey(), flagsOf(eldest.getValue()));
+                return true;
+            }
+        };
+        deltas = new DeltaTable();
+        spilled = null;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The number of changed towns currently kept whole.
+     */
+    public int getCachedTowns() {
+        return cache.size();
+    }
+
+    /**
+     * @return The number of changed towns that were evicted and are kept only as their changes.
+     */
+    public long getDeltaCount() {
+        return deltas.size() + (spilled == null ? 0 : spilled.size());
+    }
+
+    /**
+     * @return The number of evicted towns written out to the delta file.
+     */
+    public long getSpilledCount() {
+        return spilled == null ? 0 : spilled.size();
+    }
+
+    /**
+     * Finds where a road out of a town leads.
+     *
+     * @param townId The town the road starts in.
+     * @param road Which road to take, from 0 to ROADS - 1.
+     * @return The id of the town at the other end.
+     */
+    public long neighbour(long townId, int road) {
+        if (road == 0) {
+            return townId + 1 == size ? 0 : townId + 1;
+        }
+        if (road == 1) {
+            return townId == 0 ? size - 1 : townId - 1;
+        }
+        return layout(townId).shortcut;
+    }
+
+    /**
+     * Returns the town with the given id, as it was left if the hunter has changed it.
+     * The town's events still draw from the game's random source; only its layout comes from the world seed.
+     *
+     * @param townId The town to visit.
+     * @param shop The shop to put in a town that has to be generated.
+     * @param toughness The chance that a generated town is a tough one.
+     * @param easy Whether items never break when crossing terrain.
+     * @param output Where the town's messages are shown.
+     * @param random The game's random number source.
+     * @return The town.
+     */
+    public Town visit(long townId, Shop shop, double toughness, boolean easy, OutputSink output,
+                      SplittableRandom random) {
+        Town town = cache.get(townId);
+        if (town != null) {
+            return town;
+        }
+        Layout layout = layout(townId);
+        int flags = getDelta(townId);
+        return new Town(shop, layout.terrain, layout.treasure, layout.toughChance < toughness, easy,
+                (flags & DUG) != 0, (flags & TREASURE_DUG) != 0, (flags & BRAWLED) != 0, output, random);
+    }
+
+    /**
+     * Remembers the town the hunter is leaving, if the hunter changed anything in it.
+     *
+     * @param townId The town's id.
+     * @param town The town.
+     */
+    public void leave(long townId, Town town) {
+        if (flagsOf(town) != 0) {
+            cache.put(townId, town);
+        }
+    }
+
+    private void putDelta(long townId, int flags) {
+        deltas.put(townId, flags);
+        if (deltas.size() >= MAX_MEMORY_DELTAS) {
+            spill();
+        }
+    }
+
+    /**
+     * @return The changes kept for an evicted town, or 0 if it has none.
+     */
+    private int getDelta(long townId) {
+        // changed towns always have a flag set, and the table holds the newer flags of the two
+        int flags = deltas.get(townId);
+        if (flags == 0 && spilled != null) {
+            flags = spilled.get(townId);
+        }
+        return flags;
+    }
+
+    /**
+     * Writes every town in the table out to the delta file and empties the table.
+     */
+    private void spill() {
+        try {
+            if (spilled == null) {
+                spilled = new DeltaFile();
+            }
+            for (int i = 0; i < deltas.keys.length; i++) {
+                if (deltas.keys[i] != 0) {
+                    spilled.put(deltas.keys[i] - 1, deltas.flags[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deltas = new DeltaTable();
+    }
+
+    private static int flagsOf(Town town) {
+        int flags = 0;
+        if (town.getDug()) {
+            flags |= DUG;
+        }
+        if (town.getTreasureDig()) {
+            flags |= TREASURE_DUG;
+        }
+        if (town.getBrawled()) {
+            flags |= BRAWLED;
+        }
+        return flags;
+    }
+
+    /**
+     * Draws everything about a town that never changes. The draws always happen in the same order,
+     * so a town is the same on every visit and in every game played in this world.
+     */
+    private Layout layout(long townId) {
+        if (townId < 0 || townId >= size) {
+            throw new IllegalArgumentException("No town " + townId + " in a world of " + size);
+        }
+        SplittableRandom layoutRandom = new SplittableRandom(SimulationRunner.seedForGame(seed, townId));
+        Terrain terrain = Terrain.random(layoutRandom);
+        Treasure treasure = Town.randomTreasure(layoutRandom);
+        double toughChance = layoutRandom.nextDouble();
+        long shortcut = layoutRandom.nextLong(size);
+        return new Layout(terrain, treasure, toughChance, shortcut);
+    }
+
+    /**
+     * The parts of a town that come from the world seed.
+     */
+    private static final class Layout {
+        // instance variables
+        private final Terrain terrain;
+        private final Treasure treasure;
+        private final double toughChance;
+        private final long shortcut;
+
+        Layout(Terrain terrain, Treasure treasure, double toughChance, long shortcut) {
+            this.terrain = terrain;
+            this.treasure = treasure;
+            this.toughChance = toughChance;
+            this.shortcut = shortcut;
+        }
+    }
+
+    /**
+     * An open-addressing table from town id to change flags, using two primitive arrays so each evicted town
+     * costs nine bytes and no objects.
+     */
+    private static final class DeltaTable {
+        // instance variables
+        private long[] keys;
+        private byte[] flags;
+        private int size;
+
+        DeltaTable() {
+            keys = new long[64];
+            flags = new byte[64];
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long townId) {
+            int slot = find(keys, townId);
+            return keys[slot] == 0 ? 0 : flags[slot];
+        }
+
+        void put(long townId, int townFlags) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int slot = find(keys, townId);
+            if (keys[slot] == 0) {
+                // ids are stored plus one so that 0 can mark an empty slot
+                keys[slot] = townId + 1;
+                size++;
+            }
+            flags[slot] = (byte) townFlags;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            byte[] oldFlags = flags;
+            keys = new long[oldKeys.length * 2];
+            flags = new byte[oldFlags.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(keys, oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    flags[slot] = oldFlags[i];
+                }
+            }
+        }
+
+        private static int find(long[] keys, long townId) {
+            int mask = keys.length - 1;
+            int slot = (int) ((townId * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+            while (keys[slot] != 0 && keys[slot] != townId + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * An open-addressing table from town id to change flags in a memory-mapped temporary file, one long per town:
+     * the id plus one in the high bits and the flags in the low byte. The file is deleted as soon as it is mapped,
+     * where the platform allows, so nothing is left behind. When the table is three quarters full it is
+     * rehashed into a file twice the size.
+     */
+    private static final class DeltaFile {
+        // constants
+        private static final long MAX_TOWN_ID = (1L << 55) - 2;
+        private static final int FIRST_CAPACITY = 1 << 18;
+        private static final int MAX_CAPACITY = 1 << 27;   // a 1 GB mapping
+
+        // instance variables
+        private MappedByteBuffer slots;
+        private int capacity;
+        private long size;
+
+        DeltaFile() throws IOException {
+            slots = map(FIRST_CAPACITY);
+            capacity = FIRST_CAPACITY;
+            size = 0;
+        }
+
+        long size() {
+            return size;
+        }
+
+        int get(long townId) {
+            long slot = slots.getLong(find(slots, capacity, townId) * Long.BYTES);
+            return (int) (slot & 0xff);
+        }
+
+        void put(long townId, int townFlags) throws IOException {
+            if ((size + 1) * 4 > (long) capacity * 3) {
+                grow();
+            }
+            int index = find(slots, capacity, townId);
+            if (slots.getLong(index * Long.BYTES) == 0) {
+                size++;
+            }
+            slots.putLong(index * Long.BYTES, (townId + 1) << 8 | (townFlags & 0xff));
+        }
+
+        private void grow() throws IOException {
+            if (capacity == MAX_CAPACITY) {
+                throw new IOException("Too many changed towns to keep: " + size);
+            }
+            int newCapacity = capacity * 2;
+            MappedByteBuffer grown = map(newCapacity);
+            for (int i = 0; i < capacity; i++) {
+                long slot = slots.getLong(i * Long.BYTES);
+                if (slot != 0) {
+                    grown.putLong(find(grown, newCapacity, (slot >>> 8) - 1) * Long.BYTES, slot);
+                }
+            }
+            // the old mapping is released once it is garbage collected
+            slots = grown;
+            capacity = newCapacity;
+        }
+
+        private static int find(MappedByteBuffer slots, int capacity, long townId) {
+            int mask = capacity - 1;
+            int index = (int) ((townId * 0x9e3779b97f4a7c15L) >>> 32) & mask;
+            long slot = slots.getLong(index * Long.BYTES);
+            while (slot != 0 && (slot >>> 8) != townId + 1) {
+                index = (index + 1) & mask;
+                slot = slots.getLong(index * Long.BYTES);
+            }
+            return index;
+        }
+
+        private static MappedByteBuffer map(int capacity) throws IOException {
+            Path file = Files.createTempFile("world-deltas", ".bin");
+            MappedByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * Long.BYTES);
+            }
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                // some platforms cannot delete a mapped file
+                file.toFile().deleteOnExit();
+            }
+            return mapped;
+        }
+    }
+}